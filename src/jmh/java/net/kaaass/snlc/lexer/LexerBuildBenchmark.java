@@ -0,0 +1,112 @@
+package net.kaaass.snlc.lexer;
+
+import net.kaaass.snlc.lexer.dfa.DfaGraph;
+import net.kaaass.snlc.lexer.dfa.HopcroftSimplifier;
+import net.kaaass.snlc.lexer.nfa.NfaGraph;
+import net.kaaass.snlc.lexer.regex.RegexExpression;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * SNL 词法分析器构建耗时，按 LexContext.compile 的步骤分别测量。各步骤的输入在准备阶段由前一步骤得到
+ *
+ * @author kaaass
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBuildBenchmark {
+
+    private final List<List<RegexExpression>> regexes = new ArrayList<>();
+
+    private final List<CharClassPartition> partitions = new ArrayList<>();
+
+    private final List<NfaGraph> nfas = new ArrayList<>();
+
+    private final List<DfaGraph> dfas = new ArrayList<>();
+
+    private final List<DfaGraph> simplified = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        var grammar = SnlLexerFactory.grammar();
+        var contexts = new ArrayList<LexContext<SnlLexeme>>();
+        contexts.add(grammar.getContext());
+        contexts.addAll(grammar.getSubContext());
+        for (var context : contexts) {
+            var regexes = context.getTokens().stream()
+                    .map(info -> info.getRegex().group(info.getId()))
+                    .collect(Collectors.toList());
+            var partition = CharClassPartition.of(regexes);
+            var nfa = new GlushkovRegexTranslator(partition).translateRegexes(regexes);
+            var dfa = SubsetConstructAlgorithm.convert(nfa);
+            this.regexes.add(regexes);
+            this.partitions.add(partition);
+            this.nfas.add(nfa);
+            this.dfas.add(dfa);
+            this.simplified.add(HopcroftSimplifier.run(dfa));
+        }
+    }
+
+    /**
+     * 完整构建，包括定义文法
+     */
+    @Benchmark
+    public Lexer<SnlLexeme> create() {
+        return SnlLexerFactory.create();
+    }
+
+    @Benchmark
+    public LexGrammar<SnlLexeme> grammar() {
+        return SnlLexerFactory.grammar();
+    }
+
+    @Benchmark
+    public void partition(Blackhole blackhole) {
+        for (var regexes : this.regexes) {
+            blackhole.consume(CharClassPartition.of(regexes));
+        }
+    }
+
+    @Benchmark
+    public void glushkov(Blackhole blackhole) {
+        for (int i = 0; i < this.regexes.size(); i++) {
+            blackhole.consume(new GlushkovRegexTranslator(this.partitions.get(i))
+                    .translateRegexes(this.regexes.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void subsetConstruct(Blackhole blackhole) {
+        for (var nfa : this.nfas) {
+            blackhole.consume(SubsetConstructAlgorithm.convert(nfa));
+        }
+    }
+
+    @Benchmark
+    public void simplify(Blackhole blackhole) {
+        for (var dfa : this.dfas) {
+            blackhole.consume(HopcroftSimplifier.run(dfa));
+        }
+    }
+
+    /**
+     * 由化简后的 DFA 生成转移表
+     */
+    @Benchmark
+    public void tables(Blackhole blackhole) {
+        for (int i = 0; i < this.simplified.size(); i++) {
+            blackhole.consume(LexContext.State.fromDfa(this.simplified.get(i), this.partitions.get(i)));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.kaaass.snlc.lexer.engine;
+
+import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 词法分析引擎吞吐量，以 tokens 计数器得到每秒 token 数
+ *
+ * @author kaaass
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"stacked", "basic"})
+    public String engine;
+
+    /**
+     * 程序字符数
+     */
+    @Param({"131072"})
+    public int size;
+
+    private Lexer<SnlLexeme> lexer;
+
+    private String code;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long tokens;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        this.lexer = SnlLexerFactory.create();
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(42, this.size).generate(builder);
+        this.code = builder.toString();
+    }
+
+    @Benchmark
+    public void lex(Counters counters) throws LexParseException {
+        var engine = "basic".equals(this.engine) ? new BasicEngine<>(this.lexer) : new StackedEngine<>(this.lexer);
+        engine.init(new StringStream(this.code));
+        long count = 0;
+        while (engine.nextToken() != null) {
+            count++;
+        }
+        counters.tokens += count;
+    }
+}
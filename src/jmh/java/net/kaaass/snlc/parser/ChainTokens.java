@@ -0,0 +1,64 @@
+package net.kaaass.snlc.parser;
+
+import net.kaaass.snlc.lexer.TokenBuffer;
+import net.kaaass.snlc.lexer.TokenResult;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+
+import java.util.List;
+
+/**
+ * 预测集的旧检查方式，作为位掩码检查的对照：每个候选 token 都调用一次 current() 比较，
+ * 与 tokens.current() == A || tokens.current() == B || ... 的分支链开销相同
+ *
+ * @author kaaass
+ */
+final class ChainTokens {
+
+    private static final SnlLexeme[] VALUES = SnlLexeme.values();
+
+    private ChainTokens() {
+    }
+
+    private static boolean in(Parser.Tokens tokens, long set) {
+        for (long rest = set; rest != 0; rest &= rest - 1) {
+            if (tokens.current() == VALUES[Long.numberOfTrailingZeros(rest)]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class OfList extends Parser.ListTokens {
+
+        OfList(List<TokenResult<SnlLexeme>> tokenList) {
+            super(tokenList);
+        }
+
+        @Override
+        public boolean is(SnlLexeme type) {
+            return current() == type;
+        }
+
+        @Override
+        public boolean in(long set) {
+            return ChainTokens.in(this, set);
+        }
+    }
+
+    static class OfBuffer extends Parser.BufferTokens {
+
+        OfBuffer(TokenBuffer<SnlLexeme> buffer) {
+            super(buffer);
+        }
+
+        @Override
+        public boolean is(SnlLexeme type) {
+            return current() == type;
+        }
+
+        @Override
+        public boolean in(long set) {
+            return ChainTokens.in(this, set);
+        }
+    }
+}
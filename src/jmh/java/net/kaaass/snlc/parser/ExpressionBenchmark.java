@@ -0,0 +1,58 @@
+package net.kaaass.snlc.parser;
+
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.lexer.TokenResult;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 长表达式的语法分析耗时。terms 计数器给出每秒分析的项数，各规模下应基本相同，即耗时与项数成线性
+ *
+ * @author kaaass
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int terms;
+
+    private List<TokenResult<SnlLexeme>> tokenList;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long terms;
+    }
+
+    @Setup
+    public void setup() throws IOException, LexParseException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(42, 0).generateExpression(this.terms, builder);
+        this.tokenList = SnlLexerFactory.create().process(builder.toString()).readAllTokens();
+    }
+
+    @Benchmark
+    public TreeNode recursive(Counters counters) throws TokenNotMatchException, LexParseException {
+        counters.terms += this.terms;
+        return Parser.of(this.tokenList).getAst();
+    }
+
+    @Benchmark
+    public TreeNode table(Counters counters) throws TokenNotMatchException, LexParseException {
+        counters.terms += this.terms;
+        return TableParser.of(this.tokenList).getAst();
+    }
+}
@@ -0,0 +1,121 @@
+package net.kaaass.snlc.parser;
+
+import net.kaaass.snlc.ast.AstPrinter;
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.lexer.TokenBuffer;
+import net.kaaass.snlc.lexer.TokenResult;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语法分析吞吐量，token 预先读入，只测量语法分析。nodes 计数器给出每秒生成的语法树节点数
+ *
+ * @author kaaass
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    /**
+     * 程序字符数。语句表是右递归的，递归下降分析的调用深度随语句数增长，程序过大会栈溢出
+     */
+    @Param({"16384", "131072"})
+    public int size;
+
+    private List<TokenResult<SnlLexeme>> tokenList;
+
+    private TokenBuffer<SnlLexeme> tokenBuffer;
+
+    private TreeNode ast;
+
+    private long nodeCount;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup() throws IOException, LexParseException, TokenNotMatchException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(42, this.size).generate(builder);
+        var code = builder.toString();
+        var lexer = SnlLexerFactory.create();
+        this.tokenList = lexer.process(code).readAllTokens();
+        this.tokenBuffer = TokenBuffer.readAll(lexer.process(code), SnlLexeme.class);
+        this.ast = Parser.of(this.tokenBuffer).getAst();
+        var stack = new ArrayDeque<TreeNode>();
+        stack.push(this.ast);
+        while (!stack.isEmpty()) {
+            this.nodeCount++;
+            stack.pop().getChild().forEach(stack::push);
+        }
+    }
+
+    @Benchmark
+    public TreeNode recursiveList(Counters counters) throws TokenNotMatchException, LexParseException {
+        counters.nodes += this.nodeCount;
+        return Parser.of(this.tokenList).getAst();
+    }
+
+    @Benchmark
+    public TreeNode recursiveBuffer(Counters counters) throws TokenNotMatchException, LexParseException {
+        counters.nodes += this.nodeCount;
+        return Parser.of(this.tokenBuffer).getAst();
+    }
+
+    /**
+     * 旧的预测集检查方式，与 recursiveList 对照
+     */
+    @Benchmark
+    public TreeNode recursiveListChain(Counters counters) throws TokenNotMatchException, LexParseException {
+        counters.nodes += this.nodeCount;
+        return Parser.of(new ChainTokens.OfList(this.tokenList)).getAst();
+    }
+
+    /**
+     * 旧的预测集检查方式，与 recursiveBuffer 对照
+     */
+    @Benchmark
+    public TreeNode recursiveBufferChain(Counters counters) throws TokenNotMatchException, LexParseException {
+        counters.nodes += this.nodeCount;
+        return Parser.of(new ChainTokens.OfBuffer(this.tokenBuffer)).getAst();
+    }
+
+    @Benchmark
+    public TreeNode table(Counters counters) throws TokenNotMatchException, LexParseException {
+        counters.nodes += this.nodeCount;
+        return TableParser.of(this.tokenBuffer).getAst();
+    }
+
+    @Benchmark
+    public String printString(Counters counters) throws TreeNodeException {
+        counters.nodes += this.nodeCount;
+        return this.ast.printString();
+    }
+
+    /**
+     * 流式输出，不保存文本
+     */
+    @Benchmark
+    public void printStream(Counters counters) throws TreeNodeException, IOException {
+        counters.nodes += this.nodeCount;
+        new AstPrinter(Writer.nullWriter()).print(this.ast);
+    }
+}
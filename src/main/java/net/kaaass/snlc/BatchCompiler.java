@@ -0,0 +1,190 @@
+package net.kaaass.snlc;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.engine.MappedFileStream;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.TableParser;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 多文件并行编译。文件在 ForkJoinPool 上以工作窃取方式分配，
+ * 每个文件使用独立的词法引擎，各引擎共享词法分析器已编译的状态表
+ *
+ * @author kaaass
+ */
+public class BatchCompiler {
+
+    public static final String EXTENSION = ".snl";
+
+    private final Lexer<SnlLexeme> lexer;
+
+    private final int parallelism;
+
+    /**
+     * 使用预生成的 SNL 词法分析器
+     */
+    public BatchCompiler(int parallelism) {
+        this(SnlLexerFactory.generated(), parallelism);
+    }
+
+    public BatchCompiler(Lexer<SnlLexeme> lexer, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("并行度必须为正数：" + parallelism);
+        }
+        this.lexer = lexer;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 并行编译所有文件
+     *
+     * @return 各文件的编译结果，与输入顺序一致
+     */
+    public List<Result> compile(List<Path> files) {
+        var results = new Result[files.size()];
+        if (!files.isEmpty()) {
+            var pool = new ForkJoinPool(this.parallelism);
+            try {
+                pool.invoke(new CompileTask(files, results, 0, files.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 在当前线程编译单个文件
+     */
+    public TreeNode compile(Path file) throws Exception {
+        try (var stream = MappedFileStream.open(file)) {
+            return TableParser.of(this.lexer.process(stream)).getAst();
+        }
+    }
+
+    private Result compileOne(Path file) {
+        try {
+            compile(file);
+            return new Result(file, null);
+        } catch (Exception e) {
+            return new Result(file, e);
+        }
+    }
+
+    /**
+     * 统计失败文件
+     */
+    public static List<Result> failures(List<Result> results) {
+        return results.stream()
+                .filter(result -> !result.isSuccess())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 收集待编译文件。目录递归收集其中的 .snl 文件，含通配符的参数作为 glob 匹配，其余视为文件
+     */
+    public static List<Path> collect(List<String> arguments) throws IOException {
+        var ret = new ArrayList<Path>();
+        for (var argument : arguments) {
+            var path = Path.of(argument);
+            if (isGlob(argument)) {
+                var matcher = FileSystems.getDefault().getPathMatcher("glob:" + argument);
+                try (var files = walk(globBase(argument))) {
+                    files.filter(matcher::matches).forEach(ret::add);
+                }
+            } else if (Files.isDirectory(path)) {
+                try (var files = walk(path)) {
+                    files.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).forEach(ret::add);
+                }
+            } else {
+                ret.add(path);
+            }
+        }
+        return ret;
+    }
+
+    private static Stream<Path> walk(Path base) throws IOException {
+        return Files.walk(base)
+                .filter(Files::isRegularFile)
+                .sorted();
+    }
+
+    private static boolean isGlob(String argument) {
+        return argument.chars().anyMatch(chr -> "*?[{".indexOf(chr) >= 0);
+    }
+
+    /**
+     * glob 中第一个通配符之前的目录
+     */
+    private static Path globBase(String glob) {
+        var parts = new ArrayList<String>();
+        for (var part : glob.split("/", -1)) {
+            if (isGlob(part)) {
+                break;
+            }
+            parts.add(part);
+        }
+        var base = String.join("/", parts);
+        if (base.isEmpty()) {
+            return Path.of(glob.startsWith("/") ? "/" : ".");
+        }
+        return Path.of(base);
+    }
+
+    /**
+     * 单个文件的编译结果
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Result {
+
+        private final Path file;
+
+        /**
+         * 编译失败的原因，成功时为 null
+         */
+        private final Exception error;
+
+        public boolean isSuccess() {
+            return this.error == null;
+        }
+    }
+
+    /**
+     * 以二分方式划分文件区间，空闲的工作线程可窃取未处理的区间
+     */
+    @RequiredArgsConstructor
+    private class CompileTask extends RecursiveAction {
+
+        private final List<Path> files;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 1) {
+                this.results[this.from] = compileOne(this.files.get(this.from));
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new CompileTask(this.files, this.results, this.from, mid),
+                    new CompileTask(this.files, this.results, mid, this.to));
+        }
+    }
+}
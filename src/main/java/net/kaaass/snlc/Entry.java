@@ -1,6 +1,8 @@
 package net.kaaass.snlc;
 
+import net.kaaass.snlc.lexer.engine.ILexEngine;
 import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
 import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
 import net.kaaass.snlc.parser.Parser;
 import net.kaaass.snlc.parser.exception.TokenNotMatchException;
@@ -9,31 +11,40 @@ import net.kaaass.snlc.parser.exception.TreeNodeException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 
 public class Entry {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            batch(args);
+            return;
+        }
 
         try {
             String code = Files.readString(Path.of("src/main/resources/example.snl"));
 
-            var lexer = SnlLexerFactory.create();
+            var lexer = SnlLexerFactory.generated();
             var engine = lexer.process(code);
-            var tokens = engine.readAllTokens();
+            // 语法分析按需读入 token，读入时输出词法分析结果
+            ILexEngine<SnlLexeme> printing = () -> {
+                var token = engine.readToken();
+                if (token != null) {
+                    var type = token.getDefinition().getType();
+                    var indent = (type.toString().length() + 2) / 4;
+                    System.out.println(
+                            "<" + type + ">" +
+                                    "\t".repeat(Math.max(0, 5 - indent)) +
+                                    token.getToken());
+                }
+                return token;
+            };
 
             System.out.println("----------------词法分析输出----------------");
-            for (var token : tokens) {
-                var type = token.getDefinition().getType();
-                var indent = (type.toString().length() + 2) / 4;
-                System.out.println(
-                        "<" + type + ">" +
-                                "\t".repeat(Math.max(0, 5 - indent)) +
-                                token.getToken());
-            }
+            var parser = Parser.of(printing);
+            var ast = parser.getAst();
             System.out.println("----------------词法分析完成----------------");
             System.out.println();
             System.out.println("----------------语法分析输出----------------");
-            var parser = Parser.of(tokens);
-            var ast = parser.getAst();
             ast.print();
             System.out.println("----------------语法分析完成----------------");
         } catch (TokenNotMatchException e) {
@@ -50,4 +61,65 @@ public class Entry {
             e.printStackTrace();
         }
     }
+
+    /**
+     * 批量编译：Entry [-j 并行度] &lt;文件|目录|glob&gt;...
+     */
+    private static void batch(String[] args) {
+        var parallelism = Runtime.getRuntime().availableProcessors();
+        var arguments = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j")) {
+                if (i + 1 == args.length) {
+                    usage("缺少并行度");
+                }
+                parallelism = parseParallelism(args[++i]);
+            } else {
+                arguments.add(args[i]);
+            }
+        }
+        if (arguments.isEmpty()) {
+            usage("缺少编译的文件");
+        }
+        try {
+            var files = BatchCompiler.collect(arguments);
+            var start = System.nanoTime();
+            var results = new BatchCompiler(parallelism).compile(files);
+            var elapsed = (System.nanoTime() - start) / 1_000_000;
+            var failures = BatchCompiler.failures(results);
+            for (var failure : failures) {
+                System.out.println(failure.getFile() + ": " + failure.getError());
+            }
+            System.out.println("编译 " + results.size() + " 个文件，失败 " + failures.size() +
+                    " 个，用时 " + elapsed + " ms");
+            if (!failures.isEmpty()) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.out.println("文件读取异常");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static int parseParallelism(String arg) {
+        try {
+            var ret = Integer.parseInt(arg);
+            if (ret > 0) {
+                return ret;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        usage("并行度必须为正整数：" + arg);
+        return 0;
+    }
+
+    /**
+     * 输出错误与用法并退出
+     */
+    private static void usage(String message) {
+        System.out.println(message);
+        System.out.println("用法：Entry [-j 并行度] <文件|目录|glob>...");
+        System.exit(1);
+    }
 }
@@ -0,0 +1,307 @@
+package net.kaaass.snlc.ast;
+
+import net.kaaass.snlc.ast.attr.ArrayAttr;
+import net.kaaass.snlc.ast.attr.BaseAttr;
+import net.kaaass.snlc.ast.attr.ExprAttr;
+import net.kaaass.snlc.ast.attr.ProcAttr;
+import net.kaaass.snlc.lexer.SymbolTable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Flat AST kept in primitive arrays, indexed by node number in preorder.
+ * <p>
+ * Children are linked by first-child/next-sibling indices, attributes are packed into an int
+ * and names are ids of a shared string table, so a node costs a few dozen bytes instead of
+ * a {@link TreeNode} with its lists and attribute object. Depth is not stored but derived while
+ * walking down. {@link #root()} gives an {@link AstNode} view over the arena. Token spans are
+ * not kept. {@link #write} saves the arena for {@link MappedAst}.
+ *
+ * @author Kevin Axel
+ */
+public class AstArena extends FlatAst {
+
+    private int size = 0;
+
+    private byte[] nodeK;
+    /**
+     * ordinal of {@link Kind} + 1, 0 if null
+     */
+    private byte[] kind;
+    /**
+     * attribute packed as described in {@link FlatAst}, 0 if null
+     */
+    private int[] attr;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] parent;
+    /**
+     * names of node i are [nameFrom[i], nameFrom[i + 1]) in nameId and symbol
+     */
+    private int[] nameFrom;
+
+    private int nameCount = 0;
+    private int[] nameId;
+    private int[] symbol;
+    private String[] strings;
+
+    /**
+     * array attributes, referenced by index from the packed attribute
+     */
+    private ArrayAttr[] arrays;
+
+    private AstArena(int capacity) {
+        nodeK = new byte[capacity];
+        kind = new byte[capacity];
+        attr = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        parent = new int[capacity];
+        nameFrom = new int[capacity + 1];
+        nameId = new int[capacity];
+        symbol = new int[capacity];
+    }
+
+    /**
+     * copy a tree into a new arena
+     */
+    public static AstArena of(TreeNode root) {
+        var ret = new AstArena(64);
+        var stringIds = new HashMap<String, Integer>();
+        var strings = new ArrayList<String>();
+        var arrays = new ArrayList<ArrayAttr>();
+        // last child linked so far, only needed while building
+        var lastChild = new int[64];
+
+        var nodes = new ArrayDeque<TreeNode>();
+        var parents = new ArrayDeque<Integer>();
+        nodes.push(root);
+        parents.push(NONE);
+        while (!nodes.isEmpty()) {
+            var node = nodes.pop();
+            int up = parents.pop();
+            int index = ret.size;
+            if (index == ret.nodeK.length) {
+                ret.grow(index * 2);
+                lastChild = Arrays.copyOf(lastChild, index * 2);
+            }
+            ret.size++;
+            ret.nodeK[index] = (byte) node.getNodeK().ordinal();
+            ret.kind[index] = (byte) ordinal(node.getKind());
+            ret.attr[index] = packAttr(node.getAttr(), arrays);
+            ret.firstChild[index] = NONE;
+            ret.nextSibling[index] = NONE;
+            ret.parent[index] = up;
+            lastChild[index] = NONE;
+            if (up != NONE) {
+                if (lastChild[up] == NONE) {
+                    ret.firstChild[up] = index;
+                } else {
+                    ret.nextSibling[lastChild[up]] = index;
+                }
+                lastChild[up] = index;
+            }
+
+            var names = node.getName();
+            for (int i = 0; i < names.size(); i++) {
+                var name = names.get(i);
+                var id = stringIds.get(name);
+                if (id == null) {
+                    id = strings.size();
+                    stringIds.put(name, id);
+                    strings.add(name);
+                }
+                ret.addName(id, node.getSymbol(i));
+            }
+            ret.nameFrom[index + 1] = ret.nameCount;
+
+            var children = node.getChild();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                nodes.push(children.get(i));
+                parents.push(index);
+            }
+        }
+        ret.grow(ret.size);
+        ret.nameId = Arrays.copyOf(ret.nameId, ret.nameCount);
+        ret.symbol = Arrays.copyOf(ret.symbol, ret.nameCount);
+        ret.strings = strings.toArray(new String[0]);
+        ret.arrays = arrays.toArray(new ArrayAttr[0]);
+        return ret;
+    }
+
+    private void grow(int capacity) {
+        nodeK = Arrays.copyOf(nodeK, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        attr = Arrays.copyOf(attr, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        nameFrom = Arrays.copyOf(nameFrom, capacity + 1);
+    }
+
+    private void addName(int id, int sym) {
+        if (nameCount == nameId.length) {
+            nameId = Arrays.copyOf(nameId, nameCount * 2);
+            symbol = Arrays.copyOf(symbol, nameCount * 2);
+        }
+        nameId[nameCount] = id;
+        symbol[nameCount] = sym;
+        nameCount++;
+    }
+
+    private static int packAttr(BaseAttr attr, List<ArrayAttr> arrays) {
+        if (attr == null) {
+            return 0;
+        }
+        if (attr instanceof ExprAttr) {
+            var expr = (ExprAttr) attr;
+            return ATTR_EXPR
+                    | ordinal(expr.getOp()) << 2
+                    | ordinal(expr.getVarKind()) << 10
+                    | ordinal(expr.getType()) << 12;
+        }
+        if (attr instanceof ProcAttr) {
+            return ATTR_PROC | ordinal(((ProcAttr) attr).getParamt()) << 2;
+        }
+        if (attr instanceof ArrayAttr) {
+            var array = (ArrayAttr) attr;
+            var copy = new ArrayAttr();
+            copy.setLow(array.getLow());
+            copy.setTop(array.getTop());
+            copy.setChildType(array.getChildType());
+            arrays.add(copy);
+            return ATTR_ARRAY | (arrays.size() - 1) << 2;
+        }
+        throw new IllegalArgumentException("Unsupported attribute " + attr.getClass().getName());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    protected int nodeKindOrdinal(int node) {
+        return nodeK[node];
+    }
+
+    @Override
+    protected int kindOrdinal(int node) {
+        return kind[node];
+    }
+
+    @Override
+    protected int packedAttr(int node) {
+        return attr[node];
+    }
+
+    @Override
+    protected ArrayAttr arrayAttr(int index) {
+        var array = arrays[index];
+        var ret = new ArrayAttr();
+        ret.setLow(array.getLow());
+        ret.setTop(array.getTop());
+        ret.setChildType(array.getChildType());
+        return ret;
+    }
+
+    @Override
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    @Override
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    @Override
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    @Override
+    public int nameCount(int node) {
+        return nameFrom[node + 1] - nameFrom[node];
+    }
+
+    @Override
+    public String name(int node, int index) {
+        return strings[nameId[nameFrom[node] + index]];
+    }
+
+    @Override
+    public int symbol(int node, int index) {
+        return index < nameCount(node) ? symbol[nameFrom[node] + index] : SymbolTable.NONE;
+    }
+
+    /**
+     * write the arena in the format read by {@link MappedAst}
+     */
+    public void write(Path path) throws IOException {
+        try (var out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+            write(out);
+        }
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        var out = new DataOutputStream(stream);
+        var encoded = new byte[strings.length][];
+        int stringBytes = 0;
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[i].length;
+        }
+
+        out.writeInt(MappedAst.MAGIC);
+        out.writeInt(MappedAst.VERSION);
+        out.writeInt(size);
+        out.writeInt(nameCount);
+        out.writeInt(arrays.length);
+        out.writeInt(strings.length);
+        out.writeInt(stringBytes);
+        for (int i = 0; i < size; i++) {
+            out.writeByte(nodeK[i]);
+            out.writeByte(kind[i]);
+            out.writeShort(0);
+            out.writeInt(attr[i]);
+            out.writeInt(firstChild[i]);
+            out.writeInt(nextSibling[i]);
+            out.writeInt(parent[i]);
+            out.writeInt(nameFrom[i]);
+        }
+        for (int i = 0; i < nameCount; i++) {
+            out.writeInt(nameId[i]);
+            out.writeInt(symbol[i]);
+        }
+        for (var array : arrays) {
+            out.writeInt(array.getLow() == null ? 0 : array.getLow());
+            out.writeInt(array.getTop() == null ? 0 : array.getTop());
+            out.writeByte(ordinal(array.getChildType()));
+            out.writeByte((array.getLow() == null ? 0 : MappedAst.HAS_LOW)
+                    | (array.getTop() == null ? 0 : MappedAst.HAS_TOP));
+            out.writeShort(0);
+        }
+        int offset = 0;
+        for (var bytes : encoded) {
+            out.writeInt(offset);
+            offset += bytes.length;
+        }
+        out.writeInt(offset);
+        for (var bytes : encoded) {
+            out.write(bytes);
+        }
+        out.flush();
+    }
+}
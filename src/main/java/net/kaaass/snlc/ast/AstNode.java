@@ -0,0 +1,55 @@
+package net.kaaass.snlc.ast;
+
+import net.kaaass.snlc.ast.attr.BaseAttr;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * read-only node of an AST, implemented by {@link TreeNode} and by the nodes of an {@link AstArena}
+ *
+ * @author Kevin Axel
+ */
+public interface AstNode {
+
+    List<? extends AstNode> getChild();
+
+    AstNode getParent();
+
+    NodeKind getNodeK();
+
+    Kind getKind();
+
+    Integer getDept();
+
+    BaseAttr getAttr();
+
+    List<String> getName();
+
+    int getSymbol(int index);
+
+    /**
+     * write the tree to standard output without building the whole text first
+     */
+    default void print() throws TreeNodeException {
+        try {
+            new AstPrinter(System.out).print(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println();
+    }
+
+    default String printString() throws TreeNodeException {
+        var builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(this);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package net.kaaass.snlc.ast;
+
+import net.kaaass.snlc.ast.attr.ExprAttr;
+import net.kaaass.snlc.ast.attr.ProcAttr;
+import net.kaaass.snlc.ast.attr.VarKind;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Writes the text form of an AST to an {@link Appendable}, one line per node.
+ * <p>
+ * Nodes are visited in preorder with an explicit stack and every line goes straight to the output,
+ * so deep trees do not overflow the call stack and big trees are never held as one string.
+ * If a node cannot be printed, the lines before it are already written.
+ *
+ * @author Kevin Axel
+ */
+public class AstPrinter {
+
+    private static final String INDENT = "    ";
+
+    /**
+     * indentation of depth 0 to CACHED_DEPTH, deeper ones are written in pieces
+     */
+    private static final int CACHED_DEPTH = 64;
+    private static final String[] INDENTS = new String[CACHED_DEPTH + 1];
+
+    static {
+        for (int i = 0; i <= CACHED_DEPTH; i++) {
+            INDENTS[i] = INDENT.repeat(i);
+        }
+    }
+
+    private final Appendable out;
+
+    public AstPrinter(Appendable out) {
+        this.out = out;
+    }
+
+    public void print(AstNode root) throws IOException, TreeNodeException {
+        var stack = new ArrayDeque<AstNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            visit(node);
+            var children = node.getChild();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+    }
+
+    private void indent(int depth) throws IOException {
+        while (depth > CACHED_DEPTH) {
+            out.append(INDENTS[CACHED_DEPTH]);
+            depth -= CACHED_DEPTH;
+        }
+        out.append(INDENTS[Math.max(0, depth)]);
+    }
+
+    private void visit(AstNode node) throws IOException, TreeNodeException {
+        indent(node.getDept());
+        out.append(node.getNodeK().toString());
+
+        var nodeK = node.getNodeK();
+        var kind = node.getKind();
+        if (nodeK == NodeKind.ProK) {
+            // pass
+        } else if (nodeK == NodeKind.PheadK) {
+            out.append(" ");
+            out.append(node.getName().get(0));
+        } else if (nodeK == NodeKind.TypeK) {
+            // pass
+        } else if (nodeK == NodeKind.DecK) {
+            out.append(" ");
+            if (node.getAttr() != null && node.getAttr() instanceof ProcAttr) {
+                var attr = (ProcAttr) node.getAttr();
+                out.append(attr.getParamt().toString());
+                out.append(" ");
+                out.append("param:");
+            }
+            out.append(String.valueOf(kind));
+            for (var name: node.getName()) {
+                out.append(" ");
+                out.append(name);
+            }
+        } else if (nodeK == NodeKind.VarK) {
+            // pass
+        } else if (nodeK == NodeKind.ProcDecK) {
+            out.append(" ");
+            out.append(node.getName().get(0));
+        } else if (nodeK == NodeKind.StmLK) {
+            // pass
+        } else if (nodeK == NodeKind.StmtK) {
+            out.append(" ");
+            out.append(String.valueOf(kind));
+            if (kind == Kind.ReadK) {
+                out.append(" ");
+                out.append(node.getName().get(0));
+            }
+        } else if (nodeK == NodeKind.ExpK) {
+            var attr = (ExprAttr) node.getAttr();
+            if (kind == Kind.OpK) {
+                out.append(" Op");
+
+                if (attr.getOp() == SnlLexeme.PLUS) {
+                    out.append(" +");
+                } else if (attr.getOp() == SnlLexeme.MINUS) {
+                    out.append(" -");
+                } else if (attr.getOp() == SnlLexeme.TIMES) {
+                    out.append(" *");
+                } else if (attr.getOp() == SnlLexeme.OVER) {
+                    out.append(" /");
+                } else if (attr.getOp() == SnlLexeme.LT) {
+                    out.append(" <");
+                } else if (attr.getOp() == SnlLexeme.EQ) {
+                    out.append(" =");
+                } else {
+                    throw new TreeNodeException();
+                }
+            } else if (kind == Kind.ConstK) {
+                out.append(" Const ");
+                out.append(node.getName().get(0));
+            } else if (attr != null && attr.getVarKind() == VarKind.IdV) {
+                out.append(" ");
+                out.append(node.getName().get(0));
+                out.append(" IdV");
+            } else {
+                throw new TreeNodeException();
+            }
+        }
+        out.append("\n");
+    }
+}
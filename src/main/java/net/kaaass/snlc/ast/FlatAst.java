@@ -0,0 +1,219 @@
+package net.kaaass.snlc.ast;
+
+import net.kaaass.snlc.ast.attr.ArrayAttr;
+import net.kaaass.snlc.ast.attr.BaseAttr;
+import net.kaaass.snlc.ast.attr.ExprAttr;
+import net.kaaass.snlc.ast.attr.Paramt;
+import net.kaaass.snlc.ast.attr.ProcAttr;
+import net.kaaass.snlc.ast.attr.VarKind;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * AST stored as numbered nodes in preorder, linked by first-child/next-sibling indices.
+ * Subclasses keep the fields in arrays ({@link AstArena}) or in a mapped file ({@link MappedAst}),
+ * and {@link #root()} gives an {@link AstNode} view over either.
+ * <p>
+ * The attribute of a node is packed into an int: the low 2 bits tell its type, an expression
+ * has op + 1 in bits 2-9, var kind + 1 in bits 10-11 and type + 1 in bits 12-13, a parameter
+ * has paramt + 1 from bit 2, and an array has the index of its {@link ArrayAttr} from bit 2.
+ * Enum values are stored as ordinal + 1, 0 for null.
+ *
+ * @author Kevin Axel
+ */
+public abstract class FlatAst {
+
+    public static final int NONE = -1;
+
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+    private static final Kind[] KINDS = Kind.values();
+    private static final SnlLexeme[] LEXEMES = SnlLexeme.values();
+    private static final VarKind[] VAR_KINDS = VarKind.values();
+    private static final ExpType[] EXP_TYPES = ExpType.values();
+    private static final Paramt[] PARAMTS = Paramt.values();
+
+    static final int ATTR_EXPR = 1;
+    static final int ATTR_PROC = 2;
+    static final int ATTR_ARRAY = 3;
+
+    public abstract int size();
+
+    public abstract int firstChild(int node);
+
+    public abstract int nextSibling(int node);
+
+    public abstract int parent(int node);
+
+    public abstract int nameCount(int node);
+
+    public abstract String name(int node, int index);
+
+    public abstract int symbol(int node, int index);
+
+    /**
+     * ordinal of the node kind
+     */
+    protected abstract int nodeKindOrdinal(int node);
+
+    /**
+     * ordinal of the kind + 1, 0 if null
+     */
+    protected abstract int kindOrdinal(int node);
+
+    protected abstract int packedAttr(int node);
+
+    /**
+     * a fresh copy of an array attribute
+     */
+    protected abstract ArrayAttr arrayAttr(int index);
+
+    public NodeKind nodeKind(int node) {
+        return NODE_KINDS[nodeKindOrdinal(node)];
+    }
+
+    public Kind kind(int node) {
+        return value(KINDS, kindOrdinal(node));
+    }
+
+    public int depth(int node) {
+        int ret = 0;
+        for (int up = parent(node); up != NONE; up = parent(up)) {
+            ret++;
+        }
+        return ret;
+    }
+
+    /**
+     * a fresh copy of the attribute of a node
+     */
+    public BaseAttr attr(int node) {
+        int packed = packedAttr(node);
+        switch (packed & 3) {
+            case ATTR_EXPR:
+                return new ExprAttr(value(LEXEMES, packed >>> 2 & 0xff),
+                        value(VAR_KINDS, packed >>> 10 & 3),
+                        value(EXP_TYPES, packed >>> 12 & 3));
+            case ATTR_PROC:
+                return new ProcAttr(value(PARAMTS, packed >>> 2));
+            case ATTR_ARRAY:
+                return arrayAttr(packed >>> 2);
+            default:
+                return null;
+        }
+    }
+
+    static int ordinal(Enum<?> value) {
+        return value == null ? 0 : value.ordinal() + 1;
+    }
+
+    static <T> T value(T[] values, int ordinal) {
+        return ordinal == 0 ? null : values[ordinal - 1];
+    }
+
+    public Node root() {
+        return new Node(0, 0);
+    }
+
+    public Node node(int index) {
+        Objects.checkIndex(index, size());
+        return new Node(index, depth(index));
+    }
+
+    /**
+     * read-only view of a node, created on demand
+     */
+    public class Node implements AstNode {
+
+        private final int index;
+        private final int dept;
+
+        private Node(int index, int dept) {
+            this.index = index;
+            this.dept = dept;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public FlatAst getAst() {
+            return FlatAst.this;
+        }
+
+        @Override
+        public List<Node> getChild() {
+            var ret = new ArrayList<Node>();
+            for (int child = firstChild(index); child != NONE; child = nextSibling(child)) {
+                ret.add(new Node(child, dept + 1));
+            }
+            return Collections.unmodifiableList(ret);
+        }
+
+        @Override
+        public Node getParent() {
+            int up = parent(index);
+            return up == NONE ? null : new Node(up, dept - 1);
+        }
+
+        @Override
+        public NodeKind getNodeK() {
+            return nodeKind(index);
+        }
+
+        @Override
+        public Kind getKind() {
+            return kind(index);
+        }
+
+        @Override
+        public Integer getDept() {
+            return dept;
+        }
+
+        @Override
+        public BaseAttr getAttr() {
+            return attr(index);
+        }
+
+        @Override
+        public List<String> getName() {
+            var count = nameCount(index);
+            var ret = new String[count];
+            for (int i = 0; i < count; i++) {
+                ret[i] = name(index, i);
+            }
+            return List.of(ret);
+        }
+
+        @Override
+        public int getSymbol(int i) {
+            return symbol(index, i);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            var node = (Node) o;
+            return index == node.index && getAst() == node.getAst();
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(getAst()) * 31 + index;
+        }
+
+        @Override
+        public String toString() {
+            return "Node{" + index + "}";
+        }
+    }
+}
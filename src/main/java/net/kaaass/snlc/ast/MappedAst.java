@@ -0,0 +1,184 @@
+package net.kaaass.snlc.ast;
+
+import net.kaaass.snlc.ast.attr.ArrayAttr;
+import net.kaaass.snlc.lexer.SymbolTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AST read from a file written by {@link AstArena#write}. The file is mapped and nodes are read
+ * from the buffer when they are visited, so opening only checks the header; names are decoded
+ * on first use.
+ * <p>
+ * Layout, big-endian ints:
+ * <pre>
+ * header   magic, version, node count, name count, array count, string count, string bytes
+ * nodes    node kind (byte), kind (byte), 0 (short), packed attr, first child, next sibling,
+ *          parent, first name
+ * names    string id, symbol id
+ * arrays   low, top, child type (byte), HAS_LOW | HAS_TOP (byte), 0 (short)
+ * strings  string count + 1 offsets, then UTF-8 bytes
+ * </pre>
+ * A file larger than 2 GB cannot be mapped as one buffer and is not supported.
+ *
+ * @author Kevin Axel
+ */
+public class MappedAst extends FlatAst {
+
+    static final int MAGIC = 0x534e4c41;
+    static final int VERSION = 1;
+
+    static final int HAS_LOW = 1;
+    static final int HAS_TOP = 2;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private static final int HEADER_SIZE = 7 * 4;
+    private static final int NODE_SIZE = 24;
+    private static final int NAME_SIZE = 8;
+    private static final int ARRAY_SIZE = 12;
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+    private final int nameCount;
+    private final int arrayCount;
+    private final int stringCount;
+
+    private final int nodes;
+    private final int names;
+    private final int arrays;
+    private final int offsets;
+    private final int strings;
+
+    /**
+     * decoded names, filled on first use
+     */
+    private final String[] decoded;
+
+    private MappedAst(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an AST file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported AST file version " + buffer.getInt(4));
+        }
+        size = buffer.getInt(8);
+        nameCount = buffer.getInt(12);
+        arrayCount = buffer.getInt(16);
+        stringCount = buffer.getInt(20);
+        var stringBytes = buffer.getInt(24);
+
+        nodes = HEADER_SIZE;
+        names = Math.toIntExact(nodes + (long) size * NODE_SIZE);
+        arrays = Math.toIntExact(names + (long) nameCount * NAME_SIZE);
+        offsets = Math.toIntExact(arrays + (long) arrayCount * ARRAY_SIZE);
+        strings = Math.toIntExact(offsets + (stringCount + 1L) * 4);
+        if (size <= 0 || strings + (long) stringBytes != buffer.limit()) {
+            throw new IllegalArgumentException("Truncated AST file");
+        }
+        decoded = new String[stringCount];
+    }
+
+    public static MappedAst open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static MappedAst of(ByteBuffer buffer) {
+        return new MappedAst(buffer.slice());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int node(int node, int field) {
+        return nodes + node * NODE_SIZE + field;
+    }
+
+    @Override
+    protected int nodeKindOrdinal(int node) {
+        return buffer.get(node(node, 0));
+    }
+
+    @Override
+    protected int kindOrdinal(int node) {
+        return buffer.get(node(node, 1));
+    }
+
+    @Override
+    protected int packedAttr(int node) {
+        return buffer.getInt(node(node, 4));
+    }
+
+    @Override
+    public int firstChild(int node) {
+        return buffer.getInt(node(node, 8));
+    }
+
+    @Override
+    public int nextSibling(int node) {
+        return buffer.getInt(node(node, 12));
+    }
+
+    @Override
+    public int parent(int node) {
+        return buffer.getInt(node(node, 16));
+    }
+
+    private int nameFrom(int node) {
+        return buffer.getInt(node(node, 20));
+    }
+
+    private int nameTo(int node) {
+        return node + 1 < size ? buffer.getInt(node(node + 1, 20)) : nameCount;
+    }
+
+    @Override
+    public int nameCount(int node) {
+        return nameTo(node) - nameFrom(node);
+    }
+
+    @Override
+    public String name(int node, int index) {
+        var id = buffer.getInt(names + (nameFrom(node) + index) * NAME_SIZE);
+        var ret = decoded[id];
+        if (ret == null) {
+            var from = buffer.getInt(offsets + id * 4);
+            var to = buffer.getInt(offsets + id * 4 + 4);
+            var bytes = new byte[to - from];
+            buffer.duplicate().position(strings + from).get(bytes);
+            ret = new String(bytes, StandardCharsets.UTF_8);
+            decoded[id] = ret;
+        }
+        return ret;
+    }
+
+    @Override
+    public int symbol(int node, int index) {
+        if (index >= nameCount(node)) {
+            return SymbolTable.NONE;
+        }
+        return buffer.getInt(names + (nameFrom(node) + index) * NAME_SIZE + 4);
+    }
+
+    @Override
+    protected ArrayAttr arrayAttr(int index) {
+        var at = arrays + index * ARRAY_SIZE;
+        var flags = buffer.get(at + 9);
+        var ret = new ArrayAttr();
+        ret.setLow((flags & HAS_LOW) != 0 ? buffer.getInt(at) : null);
+        ret.setTop((flags & HAS_TOP) != 0 ? buffer.getInt(at + 4) : null);
+        ret.setChildType(value(KINDS, buffer.get(at + 8)));
+        return ret;
+    }
+}
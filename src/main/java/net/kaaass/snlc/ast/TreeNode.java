@@ -3,13 +3,11 @@ package net.kaaass.snlc.ast;
 import lombok.Data;
 import lombok.Getter;
 import net.kaaass.snlc.ast.attr.BaseAttr;
-import net.kaaass.snlc.ast.attr.ExprAttr;
-import net.kaaass.snlc.ast.attr.ProcAttr;
-import net.kaaass.snlc.ast.attr.VarKind;
-import net.kaaass.snlc.lexer.snl.SnlLexeme;
-import net.kaaass.snlc.parser.exception.TreeNodeException;
+import net.kaaass.snlc.lexer.SymbolTable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -19,7 +17,7 @@ import java.util.List;
  */
 @Data
 @Getter
-public class TreeNode {
+public class TreeNode implements AstNode {
     private List<TreeNode> child;
     private TreeNode parent = null;
     private NodeKind nodeK;
@@ -27,10 +25,36 @@ public class TreeNode {
     private Integer dept = 0;
     private BaseAttr attr;
     private List<String> name;
+    /**
+     * symbol ids of names, -1 if the name is not interned
+     */
+    private int[] symbol;
+    /**
+     * token span [tokenFrom, tokenTo) of procedure declarations, statement lists and statements, -1 if not recorded
+     */
+    private int tokenFrom = -1;
+    private int tokenTo = -1;
 
     public TreeNode() {
         child = new ArrayList<>();
         name = new ArrayList<>();
+        symbol = new int[0];
+    }
+
+    public void addName(String name, int symbol) {
+        var index = this.name.size();
+        this.name.add(name);
+        if (this.symbol.length <= index) {
+            var size = this.symbol.length;
+            this.symbol = Arrays.copyOf(this.symbol, Math.max(index + 1, size * 2));
+            Arrays.fill(this.symbol, size, this.symbol.length, SymbolTable.NONE);
+        }
+        this.symbol[index] = symbol;
+    }
+
+    @Override
+    public int getSymbol(int index) {
+        return index < this.symbol.length ? this.symbol[index] : SymbolTable.NONE;
     }
 
     @Override
@@ -48,97 +72,28 @@ public class TreeNode {
         return node;
     }
 
+    /**
+     * link a child. only the depth of the child itself is set, call {@link #updateChildDept()}
+     * once the subtree is done
+     */
     public void addChild(TreeNode child) {
+        child.parent = this;
+        child.dept = this.dept + 1;
         this.child.add(child);
-        this.updateChildDept();
     }
 
+    /**
+     * set depths of the whole subtree from the depth of this node
+     */
     public void updateChildDept() {
-        for (var child: this.child) {
-            child.dept = this.dept + 1;
-            child.updateChildDept();
-        }
-    }
-
-    public void print() throws TreeNodeException {
-        System.out.println(this.printString());
-    }
-
-    public String printString() throws TreeNodeException {
-        var builder = new StringBuilder();
-        builder.append("    ".repeat(Math.max(0, this.dept)));
-        builder.append(this.nodeK.toString());
-
-        if (this.nodeK == NodeKind.ProK) {
-            // pass
-        } else if (this.nodeK == NodeKind.PheadK) {
-            builder.append(" ");
-            builder.append(this.name.get(0));
-        } else if (this.nodeK == NodeKind.TypeK) {
-            // pass
-        } else if (this.nodeK == NodeKind.DecK) {
-            builder.append(" ");
-            if (this.attr != null && this.attr instanceof ProcAttr) {
-                var attr = (ProcAttr) this.attr;
-                builder.append(attr.getParamt());
-                builder.append(" ");
-                builder.append("param:");
-            }
-            builder.append(this.kind);
-            for (var name: this.name) {
-                builder.append(" ");
-                builder.append(name);
-            }
-        } else if (this.nodeK == NodeKind.VarK) {
-            // pass
-        } else if (this.nodeK == NodeKind.ProcDecK) {
-            builder.append(" ");
-            builder.append(this.name.get(0));
-        } else if (this.nodeK == NodeKind.StmLK) {
-            // pass
-        } else if (this.nodeK == NodeKind.StmtK) {
-            builder.append(" ");
-            builder.append(this.kind);
-            if (this.kind == Kind.ReadK) {
-                builder.append(" ");
-                builder.append(this.name.get(0));
+        var stack = new ArrayDeque<TreeNode>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            for (var child: node.child) {
+                child.dept = node.dept + 1;
+                stack.push(child);
             }
-        } else if (this.nodeK == NodeKind.ExpK) {
-            var attr = (ExprAttr) this.attr;
-            if (this.kind == Kind.OpK) {
-                builder.append(" Op");
-
-                if (attr.getOp() == SnlLexeme.PLUS) {
-                    builder.append(" +");
-                } else if (attr.getOp() == SnlLexeme.MINUS) {
-                    builder.append(" -");
-                } else if (attr.getOp() == SnlLexeme.TIMES) {
-                    builder.append(" *");
-                } else if (attr.getOp() == SnlLexeme.OVER) {
-                    builder.append(" /");
-                } else if (attr.getOp() == SnlLexeme.LT) {
-                    builder.append(" <");
-                } else if (attr.getOp() == SnlLexeme.EQ) {
-                    builder.append(" =");
-                } else {
-                    throw new TreeNodeException();
-                }
-            } else if (this.kind == Kind.ConstK) {
-                builder.append(" Const ");
-                builder.append(this.name.get(0));
-            } else if (attr != null && attr.getVarKind() == VarKind.IdV) {
-                builder.append(" ");
-                builder.append(this.name.get(0));
-                builder.append(" IdV");
-            } else {
-                throw new TreeNodeException();
-            }
-        }
-        builder.append("\n");
-
-        for (var child: this.child) {
-            builder.append(child.printString());
         }
-        return builder.toString();
     }
 }
@@ -0,0 +1,183 @@
+package net.kaaass.snlc.lexer;
+
+import lombok.Getter;
+import net.kaaass.snlc.lexer.regex.*;
+
+import java.util.*;
+
+/**
+ * 字符等价类划分。将字符空间切分为若干区间，被所有字符集同等对待的区间归入同一等价类，
+ * 自动机的边以等价类编号代替字符，从而使转移表的列数与字符集大小无关。
+ * 等价类编号从 1 开始，0 表示字符不属于任何字符集
+ *
+ * @author kaaass
+ */
+@Getter
+public class CharClassPartition {
+
+    /**
+     * 各区间的起始字符，首个区间从 0 开始，区间延伸至下一区间起点之前
+     */
+    private final char[] bounds;
+
+    /**
+     * 各区间的等价类编号
+     */
+    private final char[] classes;
+
+    private final int classCount;
+
+    private CharClassPartition(char[] bounds, char[] classes, int classCount) {
+        this.bounds = bounds;
+        this.classes = classes;
+        this.classCount = classCount;
+    }
+
+    /**
+     * 获得字符所属区间下标
+     */
+    private int intervalOf(char chr) {
+        int pos = Arrays.binarySearch(this.bounds, chr);
+        return pos < 0 ? -pos - 2 : pos;
+    }
+
+    /**
+     * 获得字符的等价类编号
+     *
+     * @return 等价类编号，0 表示不属于任何字符集
+     */
+    public char classOf(char chr) {
+        return this.classes[intervalOf(chr)];
+    }
+
+    /**
+     * 获得字符集覆盖的所有等价类编号，按编号升序
+     */
+    public char[] classesOf(ExprCharSet charSet) {
+        var ret = new TreeSet<Character>();
+        var ranges = charSet.getRanges();
+        for (int i = 0; i < ranges.length; i += 2) {
+            int end = intervalOf(ranges[i + 1]);
+            for (int j = intervalOf(ranges[i]); j <= end; j++) {
+                ret.add(this.classes[j]);
+            }
+        }
+        var result = new char[ret.size()];
+        int i = 0;
+        for (char cls : ret) {
+            result[i++] = cls;
+        }
+        return result;
+    }
+
+    /**
+     * 按正则中出现的字符集划分等价类
+     */
+    public static CharClassPartition of(List<RegexExpression> regexes) {
+        var collector = new CharSetCollector();
+        regexes.forEach(regex -> regex.accept(collector));
+        var charSets = collector.charSets;
+        // 所有区间端点切分出基本区间
+        var points = new TreeSet<Integer>();
+        points.add(0);
+        for (var charSet : charSets) {
+            var ranges = charSet.getRanges();
+            for (int i = 0; i < ranges.length; i += 2) {
+                points.add((int) ranges[i]);
+                if (ranges[i + 1] < Character.MAX_VALUE) {
+                    points.add(ranges[i + 1] + 1);
+                }
+            }
+        }
+        var bounds = new char[points.size()];
+        int n = 0;
+        for (int point : points) {
+            bounds[n++] = (char) point;
+        }
+        // 逐个字符集细分：被覆盖的区间按原类别分出新类别
+        var classes = new int[n];
+        int nextId = 1;
+        for (var charSet : charSets) {
+            var remap = new HashMap<Integer, Integer>();
+            var ranges = charSet.getRanges();
+            for (int i = 0; i < ranges.length; i += 2) {
+                int end = Arrays.binarySearch(bounds, ranges[i + 1]);
+                end = end < 0 ? -end - 2 : end;
+                for (int j = Arrays.binarySearch(bounds, ranges[i]); j <= end; j++) {
+                    var cls = remap.get(classes[j]);
+                    if (cls == null) {
+                        cls = nextId++;
+                        remap.put(classes[j], cls);
+                    }
+                    classes[j] = cls;
+                }
+            }
+        }
+        // 压缩编号并合并相邻的同类区间
+        var compact = new HashMap<Integer, Integer>();
+        compact.put(0, 0);
+        var mergedBounds = new StringBuilder();
+        var mergedClasses = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            var cls = compact.get(classes[i]);
+            if (cls == null) {
+                cls = compact.size();
+                compact.put(classes[i], cls);
+            }
+            int last = mergedClasses.length() - 1;
+            if (last < 0 || mergedClasses.charAt(last) != cls) {
+                mergedBounds.append(bounds[i]);
+                mergedClasses.append((char) (int) cls);
+            }
+        }
+        return new CharClassPartition(mergedBounds.toString().toCharArray(),
+                mergedClasses.toString().toCharArray(), compact.size() - 1);
+    }
+
+    /**
+     * 收集正则中的所有字符集，字符串的每个字符视为单字符集
+     */
+    private static class CharSetCollector implements IRegexExprVisitor<Void> {
+
+        private final Set<ExprCharSet> charSets = new LinkedHashSet<>();
+
+        @Override
+        public Void visit(ExprEmpty exprEmpty) {
+            return null;
+        }
+
+        @Override
+        public Void visit(ExprCharSet exprChar) {
+            this.charSets.add(exprChar);
+            return null;
+        }
+
+        @Override
+        public Void visit(ExprString exprString) {
+            for (char chr : exprString.getStringLiteral().toCharArray()) {
+                this.charSets.add(new ExprCharSet(chr, chr));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ExprKleeneStar exprKleeneStar) {
+            exprKleeneStar.getInnerRegex().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visit(ExprConcatenation exprConcatenation) {
+            exprConcatenation.getLeftRegex().accept(this);
+            exprConcatenation.getRightRegex().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visit(ExprAlternation exprAlternation) {
+            exprAlternation.getLeftRegex().accept(this);
+            exprAlternation.getRightRegex().accept(this);
+            return null;
+        }
+    }
+}
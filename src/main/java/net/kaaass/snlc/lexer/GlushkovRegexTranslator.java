@@ -13,7 +13,8 @@ import java.util.*;
 /**
  * 使用 Glushkov 构造法将正则表达式转为 NFA
  * Glushkov 构造法将不会创建空转换，且状态数等于字符数。
- * 基于简单实现的考虑，仅有正则表达式组转换会考虑根节点的组信息
+ * 基于简单实现的考虑，仅有正则表达式组转换会考虑根节点的组信息。
+ * 若给定字符等价类划分，则边上为等价类编号而非字符
  *
  * @author kaaass
  */
@@ -25,6 +26,16 @@ public class GlushkovRegexTranslator {
     DSetVisitor dSetVisitor = new DSetVisitor(uFuncVisitor, cache);
     FPairSetVisitor fPairSetVisitor = new FPairSetVisitor(pSetVisitor, dSetVisitor, cache);
 
+    private final CharClassPartition partition;
+
+    public GlushkovRegexTranslator() {
+        this(null);
+    }
+
+    public GlushkovRegexTranslator(CharClassPartition partition) {
+        this.partition = partition;
+    }
+
     /**
      * 翻译若干正则表达式（使用或关系组合）
      * 会考虑每个正则根节点的组信息，其他忽略
@@ -77,7 +88,7 @@ public class GlushkovRegexTranslator {
             var from = pair.getFrom();
             var to = pair.getTo();
             // from -(to)-> to
-            to.link(states.get(from), states.get(to));
+            to.link(states.get(from), states.get(to), this.partition);
         }
         // 设置结束状态组
         for (var endLetter : dSet) {
@@ -87,7 +98,7 @@ public class GlushkovRegexTranslator {
         // 创建开始边
         for (var startLetter : pSet) {
             // 0 -(st)-> st
-            startLetter.link(startState, states.get(startLetter));
+            startLetter.link(startState, states.get(startLetter), this.partition);
         }
         nfa.setEntryEdge(NfaEdge.emptyTo(startState));
         return nfa;
@@ -195,8 +206,13 @@ public class GlushkovRegexTranslator {
             }).get(stringPos);
         }
 
-        public void link(NfaState from, NfaState to) {
-            if (isCharSetLetter()) {
+        public void link(NfaState from, NfaState to, CharClassPartition partition) {
+            if (isCharSetLetter() && partition != null) {
+                // 给每个等价类建边
+                for (var cls : partition.classesOf(this.charSet)) {
+                    NfaEdge.edge(cls).link(from, to);
+                }
+            } else if (isCharSetLetter()) {
                 // 给每个字符建边
                 for (var chr : this.charSet.getCharSet()) {
                     NfaEdge.edge(chr).link(from, to);
@@ -204,7 +220,7 @@ public class GlushkovRegexTranslator {
             } else {
                 // 给指定位置字符建边
                 var chr = this.exprString.getStringLiteral().charAt(this.stringPos);
-                NfaEdge.edge(chr).link(from, to);
+                NfaEdge.edge(partition == null ? chr : partition.classOf(chr)).link(from, to);
             }
         }
 
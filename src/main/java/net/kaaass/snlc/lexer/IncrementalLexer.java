@@ -0,0 +1,270 @@
+package net.kaaass.snlc.lexer;
+
+import lombok.Getter;
+import lombok.Value;
+import net.kaaass.snlc.lexer.engine.BaseLexEngine;
+import net.kaaass.snlc.lexer.engine.BaseLexEngine.Checkpoint;
+import net.kaaass.snlc.lexer.engine.StringStream;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 增量词法分析，用于编辑器在每次修改后更新 token。
+ * <p>
+ * 解析时在每次匹配前若仅有默认上下文，则记录一个同步点，并记录每段匹配读到的最远位置。
+ * 修改后从最后一个未读到修改处的同步点重新解析，新的同步点越过修改处且与旧同步点对应时，
+ * 其后的解析结果与旧结果相同，直接平移旧 token。重新解析的字符数与修改的范围相当，与文件大小无关
+ * <p>
+ * 平移在旧 token 对象上原地修改位置，不复制对象，因此之前由 {@link #getTokens()} 得到的列表中，
+ * 修改处之后 token 的位置会随之改变；列表本身不会被修改，其中 token 的类型与文本也保持不变
+ *
+ * @author kaaass
+ */
+public class IncrementalLexer<T> {
+
+    private final Lexer<T> lexer;
+
+    private final BaseLexEngine<T> engine;
+
+    @Getter
+    private String text;
+
+    private List<TokenResult<T>> tokens = new ArrayList<>();
+
+    private SyncPoints sync = new SyncPoints();
+
+    public IncrementalLexer(Lexer<T> lexer, String text) throws LexParseException {
+        this.lexer = lexer;
+        this.engine = lexer.newEngine();
+        this.text = "";
+        edit(0, 0, text);
+    }
+
+    /**
+     * 获得当前的 token 列表。列表不会随后续修改改变，但其中 token 的位置可能被之后的修改平移
+     *
+     * @return 只读的 token 列表
+     */
+    public List<TokenResult<T>> getTokens() {
+        return Collections.unmodifiableList(this.tokens);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return this.engine.getSymbolTable();
+    }
+
+    /**
+     * 修改文本并更新 token。解析出错时文本与 token 保持不变
+     *
+     * @param offset   修改位置
+     * @param removed  删除的字符数
+     * @param inserted 插入的文本
+     * @return token 的变化
+     */
+    public Change edit(int offset, int removed, String inserted) throws LexParseException {
+        if (offset < 0 || removed < 0 || offset + removed > this.text.length()) {
+            throw new IndexOutOfBoundsException("修改范围越界：" + offset + ", " + removed);
+        }
+        var newText = this.text.substring(0, offset) + inserted + this.text.substring(offset + removed);
+        var delta = inserted.length() - removed;
+        var oldEnd = offset + removed;
+        var newEnd = offset + inserted.length();
+
+        // 从最后一个未读到修改处的同步点开始
+        var restart = this.sync.firstReaching(offset);
+        var first = restart < this.sync.size ? this.sync.token[restart] : this.tokens.size();
+        var newTokens = new ArrayList<>(this.tokens.subList(0, first));
+        var newSync = this.sync.prefix(restart);
+        var stream = new TrackingStream(newText);
+        if (restart < this.sync.size) {
+            this.engine.init(stream, Checkpoint.of(this.lexer, this.sync.state[restart],
+                    this.sync.line[restart], this.sync.position[restart]));
+        } else {
+            this.engine.init(stream);
+        }
+
+        var old = restart;
+        while (!stream.isEof()) {
+            var state = stream.getState();
+            if (this.engine.getContextDepth() == 1) {
+                // 越过修改处后，与旧同步点对应即可复用其后的结果
+                if (state >= newEnd) {
+                    while (old < this.sync.size && this.sync.state[old] + delta < state) {
+                        old++;
+                    }
+                    if (old < this.sync.size && this.sync.state[old] + delta == state && this.sync.state[old] >= oldEnd) {
+                        var change = new Change(first, this.sync.token[old] - first,
+                                newTokens.size() - first, state - (restart < this.sync.size ? this.sync.state[restart] : 0));
+                        splice(old, delta, newTokens, newSync);
+                        this.text = newText;
+                        return change;
+                    }
+                }
+                newSync.add(state, newTokens.size(), this.engine.getLine(), this.engine.getPosition(), 0);
+            }
+            stream.reach = 0;
+            var token = this.engine.readToken();
+            if (token != null) {
+                newTokens.add(token);
+            }
+            newSync.reach(stream.reach);
+        }
+        var change = new Change(first, this.tokens.size() - first, newTokens.size() - first,
+                newText.length() - (restart < this.sync.size ? this.sync.state[restart] : 0));
+        this.tokens = newTokens;
+        this.sync = newSync;
+        this.text = newText;
+        return change;
+    }
+
+    /**
+     * 平移并拼接旧同步点之后的 token 与同步点。token 的位置原地修改
+     */
+    private void splice(int old, int delta, List<TokenResult<T>> newTokens, SyncPoints newSync) {
+        var fromLine = this.sync.line[old];
+        var fromPosition = this.sync.position[old];
+        var lineDelta = this.engine.getLine() - fromLine;
+        var positionDelta = this.engine.getPosition() - fromPosition;
+        var tokenDelta = newTokens.size() - this.sync.token[old];
+        for (int i = this.sync.token[old]; i < this.tokens.size(); i++) {
+            var token = this.tokens.get(i);
+            token.setStart(token.getStart() + delta);
+            token.setEnd(token.getEnd() + delta);
+            if (token.getLine() == fromLine) {
+                token.setColumn(token.getColumn() + positionDelta);
+            }
+            token.setLine(token.getLine() + lineDelta);
+            newTokens.add(token);
+        }
+        for (int i = old; i < this.sync.size; i++) {
+            var line = this.sync.line[i];
+            var position = line == fromLine ? this.sync.position[i] + positionDelta : this.sync.position[i];
+            newSync.add(this.sync.state[i] + delta, this.sync.token[i] + tokenDelta, line + lineDelta,
+                    position, this.sync.reach[i] + delta);
+        }
+        this.tokens = newTokens;
+        this.sync = newSync;
+    }
+
+    /**
+     * 一次修改引起的 token 变化：自 from 起的 removed 个旧 token 替换为 inserted 个新 token
+     */
+    @Value
+    public static class Change {
+
+        int from;
+
+        int removed;
+
+        int inserted;
+
+        /**
+         * 重新解析的字符数
+         */
+        int relexed;
+    }
+
+    /**
+     * 同步点，以平行数组保存
+     */
+    private static class SyncPoints {
+
+        private int[] state = new int[16];
+
+        /**
+         * 同步点之前的 token 数
+         */
+        private int[] token = new int[16];
+
+        private int[] line = new int[16];
+
+        private int[] position = new int[16];
+
+        /**
+         * 自开始至本段结束，匹配读到的最远流状态（不含），单调不减
+         */
+        private int[] reach = new int[16];
+
+        private int size = 0;
+
+        private void add(int state, int token, int line, int position, int reach) {
+            if (this.size == this.state.length) {
+                var newSize = this.size * 2;
+                this.state = Arrays.copyOf(this.state, newSize);
+                this.token = Arrays.copyOf(this.token, newSize);
+                this.line = Arrays.copyOf(this.line, newSize);
+                this.position = Arrays.copyOf(this.position, newSize);
+                this.reach = Arrays.copyOf(this.reach, newSize);
+            }
+            this.state[this.size] = state;
+            this.token[this.size] = token;
+            this.line[this.size] = line;
+            this.position[this.size] = position;
+            this.reach[this.size] = Math.max(reach, this.size > 0 ? this.reach[this.size - 1] : 0);
+            this.size++;
+        }
+
+        /**
+         * 记录当前段中一次匹配读到的最远位置
+         */
+        private void reach(int reach) {
+            if (this.size > 0 && this.reach[this.size - 1] < reach) {
+                this.reach[this.size - 1] = reach;
+            }
+        }
+
+        /**
+         * 首个读到指定位置的段
+         */
+        private int firstReaching(int offset) {
+            int low = 0;
+            int high = this.size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (this.reach[mid] > offset) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private SyncPoints prefix(int size) {
+            var ret = new SyncPoints();
+            var capacity = Math.max(16, Integer.highestOneBit(Math.max(1, size)) << 1);
+            ret.state = Arrays.copyOf(this.state, capacity);
+            ret.token = Arrays.copyOf(this.token, capacity);
+            ret.line = Arrays.copyOf(this.line, capacity);
+            ret.position = Arrays.copyOf(this.position, capacity);
+            ret.reach = Arrays.copyOf(this.reach, capacity);
+            ret.size = size;
+            return ret;
+        }
+    }
+
+    /**
+     * 记录读入的最远位置，读到流结束也计入
+     */
+    private static class TrackingStream extends StringStream {
+
+        private int reach = 0;
+
+        private TrackingStream(String data) {
+            super(data);
+        }
+
+        @Override
+        public char read() {
+            var state = getState();
+            if (state >= this.reach) {
+                this.reach = state + 1;
+            }
+            return super.read();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package net.kaaass.snlc.lexer;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.kaaass.snlc.lexer.regex.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 编译后词法自动机的磁盘缓存。以词法定义的摘要为键，命中时跳过 NFA、DFA 构造与化简
+ *
+ * @author kaaass
+ */
+@RequiredArgsConstructor
+public class LexCache {
+
+    private static final int MAGIC = 0x534e4c43;
+
+    private static final int VERSION = 2;
+
+    private static final String SUFFIX = ".lexc";
+
+    /**
+     * 缓存目录
+     */
+    @Getter
+    private final Path directory;
+
+    /**
+     * 尝试从缓存读入所有上下文的状态
+     *
+     * @return 是否命中缓存
+     */
+    public <T> boolean load(Map<String, LexContext<T>> contexts) {
+        var key = keyOf(contexts);
+        var file = fileOf(key);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+                return false;
+            }
+            var states = new TreeMap<String, LexContext.State>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                var name = in.readUTF();
+                var state = in.readBoolean() ? LexContext.State.readFrom(in) : null;
+                var context = contexts.get(name);
+                if (context == null || state != null && state.maxTokenId() >= context.getTokens().size()) {
+                    return false;
+                }
+                states.put(name, state);
+            }
+            if (!states.keySet().equals(contexts.keySet())) {
+                return false;
+            }
+            // 全部读入成功后再设置，避免部分上下文使用缓存
+            states.forEach((name, state) -> contexts.get(name).setState(state));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // 缓存损坏时重新构造
+            return false;
+        }
+    }
+
+    /**
+     * 将所有上下文已编译的状态写入缓存
+     */
+    public <T> void save(Map<String, LexContext<T>> contexts) {
+        var key = keyOf(contexts);
+        var file = fileOf(key);
+        try {
+            Files.createDirectories(this.directory);
+            // 先写临时文件再移动，防止并发进程读到不完整的缓存
+            var temp = Files.createTempFile(this.directory, key, ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                out.writeInt(contexts.size());
+                for (var context : new TreeMap<>(contexts).values()) {
+                    var state = context.getState();
+                    out.writeUTF(context.getName());
+                    out.writeBoolean(state != null);
+                    if (state != null) {
+                        state.writeTo(out);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignore) {
+            // 缓存写入失败不影响词法分析器使用
+        }
+    }
+
+    private Path fileOf(String key) {
+        return this.directory.resolve(key + SUFFIX);
+    }
+
+    /**
+     * 计算词法定义的摘要
+     */
+    public static <T> String keyOf(Map<String, LexContext<T>> contexts) {
+        var sb = new StringBuilder();
+        var visitor = new FingerprintVisitor();
+        for (var context : new TreeMap<>(contexts).values()) {
+            sb.append("context ").append(context.getName()).append('\n');
+            for (var token : context.getTokens()) {
+                sb.append(token.getId())
+                        .append(' ')
+                        .append(token.getType())
+                        .append(' ')
+                        .append(token.getRegex().accept(visitor))
+                        .append('\n');
+            }
+        }
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            var ret = new StringBuilder();
+            for (byte b : digest) {
+                ret.append(String.format("%02x", b));
+            }
+            return ret.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 生成无歧义的正则描述。friendlyString 无法区分字符串与连接，因此不直接使用
+     */
+    private static class FingerprintVisitor implements IRegexExprVisitor<String> {
+
+        @Override
+        public String visit(ExprEmpty exprEmpty) {
+            return "E";
+        }
+
+        @Override
+        public String visit(ExprCharSet exprChar) {
+            var sb = new StringBuilder("R[");
+            var ranges = exprChar.getRanges();
+            for (int i = 0; i < ranges.length; i += 2) {
+                sb.append(Integer.toHexString(ranges[i])).append('-')
+                        .append(Integer.toHexString(ranges[i + 1])).append(',');
+            }
+            return sb.append(']').toString();
+        }
+
+        @Override
+        public String visit(ExprString exprString) {
+            var literal = exprString.getStringLiteral();
+            return "S" + literal.length() + ":" + literal;
+        }
+
+        @Override
+        public String visit(ExprKleeneStar exprKleeneStar) {
+            return "K(" + exprKleeneStar.getInnerRegex().accept(this) + ")";
+        }
+
+        @Override
+        public String visit(ExprConcatenation exprConcatenation) {
+            return "C(" + exprConcatenation.getLeftRegex().accept(this) + ","
+                    + exprConcatenation.getRightRegex().accept(this) + ")";
+        }
+
+        @Override
+        public String visit(ExprAlternation exprAlternation) {
+            return "A(" + exprAlternation.getLeftRegex().accept(this) + ","
+                    + exprAlternation.getRightRegex().accept(this) + ")";
+        }
+    }
+}
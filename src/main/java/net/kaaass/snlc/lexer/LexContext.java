@@ -3,40 +3,98 @@ package net.kaaass.snlc.lexer;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import net.kaaass.snlc.lexer.dfa.DfaGraph;
 import net.kaaass.snlc.lexer.dfa.DfaSerializer;
-import net.kaaass.snlc.lexer.dfa.DfaSimplifier;
+import net.kaaass.snlc.lexer.dfa.DfaState;
+import net.kaaass.snlc.lexer.dfa.HopcroftSimplifier;
 import net.kaaass.snlc.lexer.exception.UndefinedTokenException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
- * 词法分析上下文，包含对指定语法的真正分析结构
+ * 词法分析上下文，包含对指定语法的真正分析结构。
+ * 词法分析器持有各上下文的只读副本，此后再次编译语法不影响已创建的词法分析器
  *
  * @author kaaass
  */
 @Getter
-@RequiredArgsConstructor
 public class LexContext<T> {
 
     public final static String DEFAULT = "DEFAULT";
 
     private final String name;
 
-    private final List<TokenInfo<T>> tokens = new ArrayList<>();
+    private final List<TokenInfo<T>> tokens;
 
-    private final Map<T, TokenInfo<T>> tokenMap = new HashMap<>();
+    private final Map<T, TokenInfo<T>> tokenMap;
 
     private State state = null;
 
+    /**
+     * DFA 化简算法，默认使用 Hopcroft 算法
+     */
+    private UnaryOperator<DfaGraph> simplifier = HopcroftSimplifier::run;
+
+    /**
+     * 是否为只读副本
+     */
+    @Getter(AccessLevel.NONE)
+    private final boolean readOnly;
+
+    public LexContext(String name) {
+        this.name = name;
+        this.tokens = new ArrayList<>();
+        this.tokenMap = new HashMap<>();
+        this.readOnly = false;
+    }
+
+    private LexContext(LexContext<T> source, State state) {
+        this.name = source.name;
+        this.tokens = List.copyOf(source.tokens);
+        this.tokenMap = Collections.unmodifiableMap(new HashMap<>(source.tokenMap));
+        this.state = state;
+        this.simplifier = source.simplifier;
+        this.readOnly = true;
+    }
+
+    /**
+     * 创建使用指定状态的只读副本，token 定义与当前上下文共享
+     */
+    LexContext<T> readOnlyCopy(State state) {
+        return new LexContext<>(this, state);
+    }
+
+    private void checkWritable() {
+        if (this.readOnly) {
+            throw new UnsupportedOperationException("词法分析器的上下文 " + this.name + " 不可修改");
+        }
+    }
+
+    void setState(State state) {
+        checkWritable();
+        this.state = state;
+    }
+
+    public void setSimplifier(UnaryOperator<DfaGraph> simplifier) {
+        checkWritable();
+        this.simplifier = simplifier;
+    }
+
     public void addToken(TokenInfo<T> token) {
+        checkWritable();
         // 非声明则生成 ID
         if (!token.isDeclaration()) {
             token.setId(this.tokens.size());
@@ -65,10 +123,21 @@ public class LexContext<T> {
         return DEFAULT.equals(this.name);
     }
 
+    /**
+     * 使用指定化简算法编译匹配规则至 DFA 状态
+     *
+     * @param simplifier 化简算法，如 DfaSimplifier::run
+     */
+    public void compile(UnaryOperator<DfaGraph> simplifier) {
+        setSimplifier(simplifier);
+        compile();
+    }
+
     /**
      * 编译匹配规则至 DFA 状态
      */
     public void compile() {
+        checkWritable();
         if (tokens.isEmpty()) {
             return;
         }
@@ -76,25 +145,43 @@ public class LexContext<T> {
         var regexes = tokens.stream()
                 .map(info -> info.getRegex().group(info.getId()))
                 .collect(Collectors.toList());
-        // 第二步：转换 NFA
-        var nfa = (new GlushkovRegexTranslator()).translateRegexes(regexes);
+        // 第二步：划分字符等价类并转换 NFA
+        var partition = CharClassPartition.of(regexes);
+        var nfa = (new GlushkovRegexTranslator(partition)).translateRegexes(regexes);
         // 第三步：转换 DFA
         var dfa = SubsetConstructAlgorithm.convert(nfa);
         // 第四步：化简 DFA 状态
-        dfa = DfaSimplifier.run(dfa);
-        this.state = State.fromDfa(dfa);
+        dfa = this.simplifier.apply(dfa);
+        this.state = State.fromDfa(dfa, partition);
     }
 
     /**
      * 可持久化状态，记录了 DFS 信息
      */
     @Data
-    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     public static class State implements Serializable {
 
-        private static final long serialVersionUID = 2039325900482461802L;
+        private static final long serialVersionUID = 2039325900482461803L;
+
+        /**
+         * 稠密字符表的最大长度，超出部分回退到区间表查询
+         */
+        public static final int DENSE_LIMIT = 0x800;
+
+        /**
+         * 读入状态时表项数的上限，防止损坏的数据申请过大的数组
+         */
+        private static final int MAX_TABLE_SIZE = 1 << 26;
 
-        public final Map<Character, Integer> charMap;
+        /**
+         * 字符区间的起始字符，首个区间从 0 开始，区间延伸至下一区间起点之前
+         */
+        public final char[] bounds;
+
+        /**
+         * 各字符区间对应的字符号，-1 表示无法接受
+         */
+        public final int[] boundIds;
 
         public final int[][] transMat;
 
@@ -102,16 +189,278 @@ public class LexContext<T> {
 
         public final int startState;
 
+        /**
+         * 稠密字符表，下标为字符，值为字符号，-1 表示无法接受
+         */
+        public final int[] charTable;
+
+        /**
+         * 字符表是否不完整，即存在超出稠密字符表范围的字符
+         */
+        public final boolean sparse;
+
+        /**
+         * 字符数，即展平转移表的行宽。使用等价类时为等价类数
+         */
+        public final int charCount;
+
+        /**
+         * 展平的状态转移表，下标为 状态号 * 字符数 + 字符号
+         */
+        public final int[] transTable;
+
+        /**
+         * 各状态匹配的 token，无匹配时为空数组
+         */
+        public final int[][] acceptTable;
+
         private transient WeakReference<DfaGraph> source = null;
 
+        private State(char[] bounds, int[] boundIds, int charCount, int[][] transMat,
+                      List<List<Integer>> tokenMat, int startState) {
+            this.bounds = bounds;
+            this.boundIds = boundIds;
+            this.transMat = transMat;
+            // 冻结匹配表，状态在多个引擎、线程间共享
+            var frozen = new ArrayList<List<Integer>>(tokenMat.size());
+            for (var matched : tokenMat) {
+                frozen.add(matched == null ? null : List.copyOf(matched));
+            }
+            this.tokenMat = Collections.unmodifiableList(frozen);
+            this.startState = startState;
+            // 编译字符表
+            int maxChar = -1;
+            for (int i = 0; i < bounds.length; i++) {
+                if (boundIds[i] != DfaState.DEAD) {
+                    maxChar = i + 1 < bounds.length ? bounds[i + 1] - 1 : Character.MAX_VALUE;
+                }
+            }
+            this.sparse = maxChar >= DENSE_LIMIT;
+            this.charTable = new int[Math.min(maxChar + 1, DENSE_LIMIT)];
+            for (int i = 0; i < bounds.length && bounds[i] < this.charTable.length; i++) {
+                int end = i + 1 < bounds.length ? bounds[i + 1] : this.charTable.length;
+                Arrays.fill(this.charTable, bounds[i], Math.min(end, this.charTable.length), boundIds[i]);
+            }
+            // 展平转移表
+            this.charCount = charCount;
+            this.transTable = new int[transMat.length * this.charCount];
+            for (int i = 0; i < transMat.length; i++) {
+                System.arraycopy(transMat[i], 0, this.transTable, i * this.charCount, this.charCount);
+            }
+            // 编译匹配表
+            this.acceptTable = new int[tokenMat.size()][];
+            for (int i = 0; i < tokenMat.size(); i++) {
+                var matched = tokenMat.get(i);
+                this.acceptTable[i] = matched == null ?
+                        new int[0] :
+                        matched.stream().mapToInt(id -> id).toArray();
+            }
+        }
+
+        /**
+         * 获得字符对应的字符号
+         *
+         * @return 字符号，-1 表示无法接受
+         */
+        public int charId(char chr) {
+            if (chr < this.charTable.length) {
+                return this.charTable[chr];
+            }
+            if (this.sparse) {
+                int pos = Arrays.binarySearch(this.bounds, chr);
+                return this.boundIds[pos < 0 ? -pos - 2 : pos];
+            }
+            return DfaState.DEAD;
+        }
+
+        /**
+         * 状态转移
+         */
+        public int next(int state, int chrId) {
+            return this.transTable[state * this.charCount + chrId];
+        }
+
+        /**
+         * 将状态表写入二进制流
+         */
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeInt(this.startState);
+            // 字符区间表
+            out.writeInt(this.bounds.length);
+            for (int i = 0; i < this.bounds.length; i++) {
+                out.writeChar(this.bounds[i]);
+                out.writeInt(this.boundIds[i]);
+            }
+            // 转移表
+            out.writeInt(this.charCount);
+            out.writeInt(this.transMat.length);
+            for (int i : this.transTable) {
+                out.writeInt(i);
+            }
+            // 匹配表
+            for (var matched : this.tokenMat) {
+                if (matched == null) {
+                    out.writeInt(-1);
+                    continue;
+                }
+                out.writeInt(matched.size());
+                for (int id : matched) {
+                    out.writeInt(id);
+                }
+            }
+        }
+
+        /**
+         * 从二进制流读入状态表
+         */
+        public static State readFrom(DataInput in) throws IOException {
+            int startState = in.readInt();
+            // 字符区间表
+            int k = in.readInt();
+            check(k >= 0 && k <= Character.MAX_VALUE + 1, "字符区间数");
+            var bounds = new char[k];
+            var boundIds = new int[k];
+            for (int i = 0; i < k; i++) {
+                bounds[i] = in.readChar();
+                boundIds[i] = in.readInt();
+                check(i == 0 ? bounds[i] == 0 : bounds[i] > bounds[i - 1], "字符区间");
+            }
+            // 转移表
+            int m = in.readInt();
+            int n = in.readInt();
+            check(m >= 0 && m <= Character.MAX_VALUE + 1 && n > 0 && (long) n * m <= MAX_TABLE_SIZE, "转移表大小");
+            check(startState >= 0 && startState < n, "起始状态");
+            for (var id : boundIds) {
+                check(id >= DfaState.DEAD && id < m, "字符号");
+            }
+            var transMat = new int[n][m];
+            for (var row : transMat) {
+                for (int j = 0; j < m; j++) {
+                    row[j] = in.readInt();
+                    check(row[j] >= DfaState.DEAD && row[j] < n, "转移目标");
+                }
+            }
+            // 匹配表
+            var tokenMat = new ArrayList<List<Integer>>(n);
+            for (int i = 0; i < n; i++) {
+                int size = in.readInt();
+                if (size < 0) {
+                    tokenMat.add(null);
+                    continue;
+                }
+                check(size <= MAX_TABLE_SIZE / n, "匹配表大小");
+                var matched = new ArrayList<Integer>(size);
+                for (int j = 0; j < size; j++) {
+                    int token = in.readInt();
+                    check(token >= 0, "记号编号");
+                    matched.add(token);
+                }
+                tokenMat.add(matched);
+            }
+            return new State(bounds, boundIds, m, transMat, tokenMat, startState);
+        }
+
+        private static void check(boolean valid, String what) throws IOException {
+            if (!valid) {
+                throw new IOException("状态数据损坏：" + what + "越界");
+            }
+        }
+
+        /**
+         * 所有匹配的记号编号中最大者，无匹配时为 -1
+         */
+        public int maxTokenId() {
+            int ret = -1;
+            for (var matched : acceptTable) {
+                for (var id : matched) {
+                    ret = Math.max(ret, id);
+                }
+            }
+            return ret;
+        }
+
+        /**
+         * 从展平的表构造状态，用于预编译的词法分析器
+         *
+         * @param bounds   字符区间的起始字符
+         * @param boundIds 字符区间对应的字符号
+         */
+        public static State fromTables(char[] bounds, int[] boundIds, int[] transTable,
+                                       int[][] acceptTable, int startState) {
+            int n = acceptTable.length;
+            int m = n == 0 ? 0 : transTable.length / n;
+            var transMat = new int[n][m];
+            var tokenMat = new ArrayList<List<Integer>>(n);
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(transTable, i * m, transMat[i], 0, m);
+                if (acceptTable[i].length == 0) {
+                    tokenMat.add(null);
+                } else {
+                    tokenMat.add(Arrays.stream(acceptTable[i]).boxed().collect(Collectors.toList()));
+                }
+            }
+            return new State(bounds, boundIds, m, transMat, tokenMat, startState);
+        }
+
+        /**
+         * 从边上为字符的 DFA 构造状态
+         */
         public static State fromDfa(DfaGraph dfa) {
+            return fromDfa(dfa, null);
+        }
+
+        /**
+         * 从 DFA 构造状态
+         *
+         * @param partition 边上等价类编号所用的划分，为 null 则边上为字符
+         */
+        public static State fromDfa(DfaGraph dfa, CharClassPartition partition) {
             var serializer = DfaSerializer.on(dfa);
-            var ret = new State(serializer.getCharMap(),
+            var charMap = serializer.getCharMap();
+            // 计算各字符区间的字符号
+            var bounds = new StringBuilder();
+            var boundIds = new ArrayList<Integer>();
+            if (partition != null) {
+                var partBounds = partition.getBounds();
+                var partClasses = partition.getClasses();
+                for (int i = 0; i < partBounds.length; i++) {
+                    appendBound(bounds, boundIds, partBounds[i],
+                            charMap.getOrDefault(partClasses[i], DfaState.DEAD));
+                }
+            } else {
+                appendBound(bounds, boundIds, 0, DfaState.DEAD);
+                for (var entry : new TreeMap<>(charMap).entrySet()) {
+                    char chr = entry.getKey();
+                    appendBound(bounds, boundIds, chr, entry.getValue());
+                    if (chr < Character.MAX_VALUE) {
+                        appendBound(bounds, boundIds, chr + 1, DfaState.DEAD);
+                    }
+                }
+            }
+            var ret = new State(bounds.toString().toCharArray(),
+                    boundIds.stream().mapToInt(id -> id).toArray(),
+                    charMap.size(),
                     serializer.getTransMat(),
                     serializer.getTokenMat(),
                     dfa.getStartState().getId());
             ret.source = new WeakReference<>(dfa);
             return ret;
         }
+
+        /**
+         * 追加字符区间，起点相同则覆盖前一区间，字符号相同则与前一区间合并
+         */
+        private static void appendBound(StringBuilder bounds, List<Integer> boundIds, int start, int id) {
+            int last = boundIds.size() - 1;
+            if (last >= 0 && bounds.charAt(last) == start) {
+                bounds.setLength(last);
+                boundIds.remove(last--);
+            }
+            if (last >= 0 && boundIds.get(last) == id) {
+                return;
+            }
+            bounds.append((char) start);
+            boundIds.add(id);
+        }
     }
 }
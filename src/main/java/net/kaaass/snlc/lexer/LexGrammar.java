@@ -9,6 +9,7 @@ import net.kaaass.snlc.lexer.regex.RegexExpression;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 词法分析语法定义，即词法分析器的建造者
@@ -89,7 +90,23 @@ public class LexGrammar<T> {
      * 从词法创建词法分析器
      */
     public Lexer<T> compile() {
-        return Lexer.of(this);
+        return Lexer.of(this, (LexCache) null);
+    }
+
+    /**
+     * 从词法创建词法分析器，并使用缓存的自动机
+     * @param cache 自动机缓存
+     */
+    public Lexer<T> compile(LexCache cache) {
+        return Lexer.of(this, cache);
+    }
+
+    /**
+     * 使用预编译的状态表创建词法分析器，不进行自动机构造
+     * @param states 上下文名到状态表的映射
+     */
+    public Lexer<T> link(Map<String, LexContext.State> states) {
+        return Lexer.of(this, states);
     }
 
     public static <T> LexGrammar<T> create() {
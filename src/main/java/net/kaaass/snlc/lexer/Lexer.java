@@ -3,18 +3,23 @@ package net.kaaass.snlc.lexer;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import net.kaaass.snlc.lexer.engine.BaseLexEngine;
 import net.kaaass.snlc.lexer.engine.IRevertibleStream;
+import net.kaaass.snlc.lexer.engine.MappedFileStream;
 import net.kaaass.snlc.lexer.engine.StackedEngine;
 import net.kaaass.snlc.lexer.engine.StringStream;
 import net.kaaass.snlc.lexer.exception.UndefinedContextException;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
- * 词法分析器
+ * 词法分析器。编译完成后不可变，可在线程间共享；每次解析使用独立的引擎，各引擎共享已编译的状态表
  *
  * @author kaaass
  */
@@ -24,26 +29,32 @@ public class Lexer<T> {
     @Getter
     private final Map<String, LexContext<T>> contexts;
 
-    @Setter
-    private BaseLexEngine<T> engine = null;
+    /**
+     * 创建解析引擎，默认为 StackedEngine
+     */
+    private final Function<Lexer<T>, ? extends BaseLexEngine<T>> engineFactory;
+
+    /**
+     * 以指定引擎解析的词法分析器，与当前词法分析器共享已编译的上下文
+     */
+    public Lexer<T> withEngine(Function<Lexer<T>, ? extends BaseLexEngine<T>> engineFactory) {
+        return new Lexer<>(this.contexts, engineFactory);
+    }
 
     /**
-     * 对词法进行预处理
+     * 创建未初始化的解析引擎
      */
-    private void preprocess() {
-        // 编译所有上下文
-        contexts.values().forEach(LexContext::compile);
-        // 创建引擎
-        this.engine = new StackedEngine<>(this);
+    public BaseLexEngine<T> newEngine() {
+        return this.engineFactory.apply(this);
     }
 
     /**
-     * 返回输入流对应的解析引擎
+     * 返回输入流对应的解析引擎。每次调用返回新的引擎
      */
     public BaseLexEngine<T> process(IRevertibleStream stream) {
-        // 初始化引擎
-        this.engine.init(stream);
-        return this.engine;
+        var ret = newEngine();
+        ret.init(stream);
+        return ret;
     }
 
     public LexContext<T> getContext(String contextName) throws UndefinedContextException {
@@ -61,16 +72,49 @@ public class Lexer<T> {
         return process(new StringStream(input));
     }
 
-    static <T> Lexer<T> of(LexGrammar<T> grammar) {
+    /**
+     * 返回文件对应的解析引擎，文件以内存映射方式读入，无需整体解码为字符串。
+     * 引擎持有映射直至不可达，需及时释放时使用 MappedFileStream.open 并在解析后关闭
+     */
+    public BaseLexEngine<T> process(Path file) throws IOException {
+        return process(MappedFileStream.open(file));
+    }
+
+    static <T> Lexer<T> of(LexGrammar<T> grammar, LexCache cache) {
+        var contexts = collectContexts(grammar);
+        // 编译所有上下文，若命中缓存则跳过
+        if (cache == null || !cache.load(contexts)) {
+            contexts.values().forEach(LexContext::compile);
+            if (cache != null) {
+                cache.save(contexts);
+            }
+        }
+        return of(contexts, contexts.values().stream()
+                .filter(ctx -> ctx.getState() != null)
+                .collect(Collectors.toMap(LexContext::getName, LexContext::getState)));
+    }
+
+    static <T> Lexer<T> of(LexGrammar<T> grammar, Map<String, LexContext.State> states) {
+        return of(collectContexts(grammar), states);
+    }
+
+    /**
+     * 以语法的上下文创建只读副本，之后再次编译语法不影响此词法分析器
+     */
+    private static <T> Lexer<T> of(Map<String, LexContext<T>> contexts, Map<String, LexContext.State> states) {
+        var copies = new HashMap<String, LexContext<T>>();
+        contexts.forEach((name, ctx) -> copies.put(name, ctx.readOnlyCopy(states.get(name))));
+        // 复制完成后再构造，状态经 final 字段安全发布
+        return new Lexer<>(Collections.unmodifiableMap(copies), StackedEngine::new);
+    }
+
+    private static <T> Map<String, LexContext<T>> collectContexts(LexGrammar<T> grammar) {
         var contexts = new HashMap<String, LexContext<T>>();
-        var ret = new Lexer<>(contexts);
         // 添加当前 Context
         var context = grammar.getContext();
         contexts.put(context.getName(), context);
         // 添加子 Context
         grammar.getSubContext().forEach(ctx -> contexts.put(ctx.getName(), ctx));
-        // 预处理
-        ret.preprocess();
-        return ret;
+        return contexts;
     }
 }
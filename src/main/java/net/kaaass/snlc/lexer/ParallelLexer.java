@@ -0,0 +1,345 @@
+package net.kaaass.snlc.lexer;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import net.kaaass.snlc.lexer.engine.BaseLexEngine;
+import net.kaaass.snlc.lexer.engine.BaseLexEngine.Checkpoint;
+import net.kaaass.snlc.lexer.engine.ISplittableStream;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 单文件并行词法分析。
+ * <p>
+ * 输入在空白处划分为若干块，各块假定从仅有默认上下文的状态开始，并行地推测解析。
+ * 推测解析在每次匹配前若仅有默认上下文，则记录一个同步点；遇到错误时跳过一个字符继续。
+ * 之后按顺序拼接：从上一块实际结束的状态开始解析本块，一旦到达同步点，
+ * 其后的推测结果与顺序解析相同，直接拼接并修正行列号。块边界位于注释等上下文中时，
+ * 只需重新解析到上下文结束后的首个同步点
+ *
+ * @author kaaass
+ */
+public class ParallelLexer<T> {
+
+    private final Lexer<T> lexer;
+
+    private final int parallelism;
+
+    /**
+     * 块的最小长度，单位与流的 seek 一致
+     */
+    @Getter
+    @Setter
+    private long minChunkSize = 1 << 16;
+
+    /**
+     * 每个工作线程分得的块数，块数多于线程数以便工作窃取
+     */
+    @Getter
+    @Setter
+    private int chunksPerThread = 4;
+
+    public ParallelLexer(Lexer<T> lexer, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("并行度必须为正数：" + parallelism);
+        }
+        this.lexer = lexer;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 解析流中所有 token，驻留的内容驻留至新的符号表
+     */
+    public List<TokenResult<T>> lex(ISplittableStream stream) throws LexParseException {
+        return lex(stream, new SymbolTable());
+    }
+
+    /**
+     * 解析流中所有 token，结果与顺序解析一致
+     *
+     * @param symbolTable 驻留 token 内容的符号表
+     */
+    public List<TokenResult<T>> lex(ISplittableStream stream, SymbolTable symbolTable) throws LexParseException {
+        var chunks = split(stream);
+        if (chunks.length > 1) {
+            var pool = new ForkJoinPool(this.parallelism);
+            try {
+                pool.invoke(new SpeculateTask(stream, chunks, 0, chunks.length));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return stitch(stream, chunks, symbolTable);
+    }
+
+    /**
+     * 在空白之后划分块，各块起点严格递增
+     */
+    private Chunk<T>[] split(ISplittableStream stream) {
+        var start = stream.getState();
+        var count = (int) Math.max(1, Math.min((long) this.parallelism * this.chunksPerThread,
+                stream.length() / Math.max(1, this.minChunkSize)));
+        var bounds = new ArrayList<Integer>();
+        bounds.add(start);
+        var scanner = stream.fork();
+        for (int i = 1; i < count; i++) {
+            scanner.seek(stream.length() * i / count);
+            var bound = skipToBoundary(scanner);
+            if (bound > bounds.get(bounds.size() - 1) && !scanner.isEof()) {
+                bounds.add(bound);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        Chunk<T>[] ret = (Chunk<T>[]) new Chunk<?>[bounds.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = new Chunk<>(bounds.get(i), i + 1 < ret.length ? bounds.get(i + 1) : Integer.MAX_VALUE);
+        }
+        return ret;
+    }
+
+    /**
+     * 读过首段空白，返回其后首个非空白字符的流状态
+     */
+    private static int skipToBoundary(ISplittableStream stream) {
+        boolean blank = false;
+        while (!stream.isEof()) {
+            var state = stream.getState();
+            var chr = stream.read();
+            if (Character.isWhitespace(chr)) {
+                blank = true;
+            } else if (blank) {
+                return state;
+            }
+        }
+        return stream.getState();
+    }
+
+    /**
+     * 从块起点推测解析至块终点
+     */
+    private void speculate(ISplittableStream stream, Chunk<T> chunk) {
+        var engine = this.lexer.newEngine();
+        int line = 1;
+        int position = 0;
+        engine.init(stream, Checkpoint.of(this.lexer, chunk.from, line, position));
+        while (!stream.isEof() && stream.getState() < chunk.to) {
+            var state = stream.getState();
+            line = engine.getLine();
+            position = engine.getPosition();
+            if (engine.getContextDepth() == 1) {
+                chunk.sync(state, line, position);
+            }
+            try {
+                var token = engine.readToken();
+                if (token != null) {
+                    chunk.tokens.add(token);
+                }
+            } catch (LexParseException e) {
+                // 推测可能有误，跳过一个字符继续
+                chunk.errors.add(new SpeculativeError(state, chunk.tokens.size(), e));
+                stream.revert(state);
+                if (stream.read() == '\n') {
+                    line++;
+                    position = 0;
+                } else {
+                    position++;
+                }
+                engine.init(stream, Checkpoint.of(this.lexer, stream.getState(), line, position));
+            }
+        }
+        chunk.exit = engine.checkpoint();
+    }
+
+    /**
+     * 按顺序从各块的实际开始状态解析，到达同步点后拼接推测结果
+     */
+    private List<TokenResult<T>> stitch(ISplittableStream stream, Chunk<T>[] chunks, SymbolTable symbolTable)
+            throws LexParseException {
+        var ret = new ArrayList<TokenResult<T>>();
+        var engine = this.lexer.newEngine();
+        engine.setSymbolTable(symbolTable);
+        var entry = Checkpoint.of(this.lexer, chunks[0].from, 1, 0);
+        for (var chunk : chunks) {
+            entry = resume(stream, engine, entry, chunk, ret, symbolTable);
+        }
+        return ret;
+    }
+
+    /**
+     * 从实际开始状态解析块，返回块结束时的状态
+     */
+    private Checkpoint<T> resume(ISplittableStream stream, BaseLexEngine<T> engine, Checkpoint<T> entry,
+                                 Chunk<T> chunk, List<TokenResult<T>> out, SymbolTable symbolTable)
+            throws LexParseException {
+        engine.init(stream, entry);
+        int sync = 0;
+        while (!stream.isEof() && stream.getState() < chunk.to) {
+            var state = stream.getState();
+            if (engine.getContextDepth() == 1) {
+                while (sync < chunk.syncCount && chunk.syncState[sync] < state) {
+                    sync++;
+                }
+                if (sync < chunk.syncCount && chunk.syncState[sync] == state) {
+                    return splice(chunk, sync, engine.getLine(), engine.getPosition(), out, symbolTable);
+                }
+            }
+            var token = engine.readToken();
+            if (token != null) {
+                out.add(token);
+            }
+        }
+        return engine.checkpoint();
+    }
+
+    /**
+     * 拼接同步点后的推测结果。推测结果中的错误在实际解析中同样会发生
+     */
+    private Checkpoint<T> splice(Chunk<T> chunk, int sync, int line, int position,
+                                 List<TokenResult<T>> out, SymbolTable symbolTable) throws LexParseException {
+        var fixer = new LineFixer(chunk.syncLine[sync], chunk.syncPosition[sync], line, position);
+        var first = chunk.syncToken[sync];
+        var end = chunk.tokens.size();
+        SpeculativeError error = null;
+        for (var candidate : chunk.errors) {
+            if (candidate.state >= chunk.syncState[sync]) {
+                error = candidate;
+                end = candidate.token;
+                break;
+            }
+        }
+        for (int i = first; i < end; i++) {
+            var token = chunk.tokens.get(i);
+            var column = token.getColumn();
+            token.setColumn(fixer.column(token.getLine(), column));
+            token.setLine(fixer.line(token.getLine()));
+            if (token.getSymbol() != SymbolTable.NONE) {
+                var symbol = symbolTable.intern(token.getText());
+                token.setSymbol(symbol);
+                token.setToken(symbolTable.name(symbol));
+            }
+            out.add(token);
+        }
+        if (error != null) {
+            var e = error.exception;
+            var errorLine = e.getLine();
+            e.setPosition(fixer.column(errorLine, e.getPosition()));
+            e.setLine(fixer.line(errorLine));
+            throw e;
+        }
+        var exit = chunk.exit;
+        return new Checkpoint<>(exit.getStreamState(), fixer.line(exit.getLine()),
+                fixer.column(exit.getLine(), exit.getPosition()), exit.getContexts());
+    }
+
+    /**
+     * 块及其推测解析结果
+     */
+    @RequiredArgsConstructor
+    private static class Chunk<T> {
+
+        private final int from;
+
+        private final int to;
+
+        private final List<TokenResult<T>> tokens = new ArrayList<>();
+
+        private final List<SpeculativeError> errors = new ArrayList<>();
+
+        /**
+         * 同步点的流状态、此前的 token 数与行列号，以平行数组保存
+         */
+        private int[] syncState = new int[16];
+        private int[] syncToken = new int[16];
+        private int[] syncLine = new int[16];
+        private int[] syncPosition = new int[16];
+        private int syncCount = 0;
+
+        /**
+         * 推测解析结束时的状态，行列号相对块起点
+         */
+        private Checkpoint<T> exit;
+
+        private void sync(int state, int line, int position) {
+            if (this.syncCount == this.syncState.length) {
+                var size = this.syncCount * 2;
+                this.syncState = Arrays.copyOf(this.syncState, size);
+                this.syncToken = Arrays.copyOf(this.syncToken, size);
+                this.syncLine = Arrays.copyOf(this.syncLine, size);
+                this.syncPosition = Arrays.copyOf(this.syncPosition, size);
+            }
+            this.syncState[this.syncCount] = state;
+            this.syncToken[this.syncCount] = this.tokens.size();
+            this.syncLine[this.syncCount] = line;
+            this.syncPosition[this.syncCount] = position;
+            this.syncCount++;
+        }
+    }
+
+    /**
+     * 推测解析遇到的错误
+     */
+    @RequiredArgsConstructor
+    private static class SpeculativeError {
+
+        private final int state;
+
+        /**
+         * 出错前的 token 数
+         */
+        private final int token;
+
+        private final LexParseException exception;
+    }
+
+    /**
+     * 将推测解析的行列号换算为实际行列号
+     */
+    @RequiredArgsConstructor
+    private static class LineFixer {
+
+        private final int fromLine;
+
+        private final int fromPosition;
+
+        private final int toLine;
+
+        private final int toPosition;
+
+        private int line(int line) {
+            return line - this.fromLine + this.toLine;
+        }
+
+        private int column(int line, int column) {
+            return line == this.fromLine ? column - this.fromPosition + this.toPosition : column;
+        }
+    }
+
+    /**
+     * 以二分方式划分块区间，空闲的工作线程可窃取未处理的区间
+     */
+    @RequiredArgsConstructor
+    private class SpeculateTask extends RecursiveAction {
+
+        private final ISplittableStream stream;
+        private final Chunk<T>[] chunks;
+        private final int from;
+        private final int to;
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 1) {
+                speculate(this.stream.fork(), this.chunks[this.from]);
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new SpeculateTask(this.stream, this.chunks, this.from, mid),
+                    new SpeculateTask(this.stream, this.chunks, mid, this.to));
+        }
+    }
+}
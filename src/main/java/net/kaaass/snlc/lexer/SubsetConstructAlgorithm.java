@@ -17,55 +17,117 @@ import java.util.stream.Collectors;
 public class SubsetConstructAlgorithm {
 
     /**
-     * 子集构造算法核心
+     * 子集构造算法核心。NFA 状态按编号以位图表示，子集以位图为键去重
      */
     public static DfaGraph convert(NfaGraph nfa) {
-        Set<NfaState> currentNfaSts;
-        DfaState newState;
         var dfa = new DfaGraph();
-        var queue = new ArrayDeque<DfaState>();
-        var subsetMap = new HashMap<Set<NfaState>, DfaState>();
-        // 获得字符集
-        var charset = getCharset(nfa);
+        // 获得开始状态会正规化图，需先于编号
+        var start = nfa.getStartState();
+        var nfaStates = nfa.getStates();
+        int n = nfaStates.size();
+        int words = (n + 63) >>> 6;
+        // 字符编号
+        var charset = getCharset(nfa).stream()
+                .sorted()
+                .mapToInt(chr -> chr)
+                .toArray();
+        int maxChar = charset.length > 0 ? charset[charset.length - 1] : 0;
+        var charIndex = new int[maxChar + 1];
+        for (int i = 0; i < charset.length; i++) {
+            charIndex[charset[i]] = i;
+        }
+        // 预处理每个状态的空闭包与非空出边
+        var closures = new long[n][];
+        var edgeChars = new int[n][];
+        var edgeTargets = new int[n][];
+        for (int i = 0; i < n; i++) {
+            var state = nfaStates.get(i);
+            closures[i] = toBits(getClosure(Set.of(state)), words);
+            var edges = state.getNextEdges().stream()
+                    .filter(edge -> !edge.isEmpty())
+                    .toArray(NfaEdge[]::new);
+            edgeChars[i] = new int[edges.length];
+            edgeTargets[i] = new int[edges.length];
+            for (int j = 0; j < edges.length; j++) {
+                edgeChars[i][j] = charIndex[edges[j].getMatchChar()];
+                edgeTargets[i][j] = edges[j].getNextState().getId();
+            }
+        }
         // 初始化：添加初始状态
-        currentNfaSts = getClosure(Set.of(nfa.getStartState()));
-        newState = createState(dfa, subsetMap, currentNfaSts);
-        dfa.setStartState(newState);
-        queue.add(newState);
-        // 遍历
-        while (!queue.isEmpty()) {
-            var state = queue.poll();
-            for (var chr : charset) {
-                currentNfaSts = getClosure(move(state.getNfaStates(), chr));
-                if (currentNfaSts.isEmpty()) {
-                    continue;
+        var subsetMap = new HashMap<StateSet, DfaState>();
+        var subsets = new ArrayList<StateSet>();
+        var startSet = new StateSet(closures[start.getId()].clone());
+        dfa.setStartState(createState(dfa, nfaStates, subsetMap, subsets, startSet));
+        // 各字符转移后的状态集，仅处理当前子集实际存在的字符
+        var moved = new long[charset.length][];
+        var touched = new int[charset.length];
+        // 按创建顺序遍历，即广度优先
+        for (int cur = 0; cur < subsets.size(); cur++) {
+            var bits = subsets.get(cur).bits;
+            var state = dfa.getStates().get(cur);
+            int touchedSize = 0;
+            for (int w = 0; w < words; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    int q = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    var chars = edgeChars[q];
+                    for (int j = 0; j < chars.length; j++) {
+                        int chr = chars[j];
+                        if (moved[chr] == null) {
+                            moved[chr] = new long[words];
+                            touched[touchedSize++] = chr;
+                        }
+                        // 转移后直接取空闭包
+                        var closure = closures[edgeTargets[q][j]];
+                        var target = moved[chr];
+                        for (int k = 0; k < words; k++) {
+                            target[k] |= closure[k];
+                        }
+                    }
                 }
+            }
+            Arrays.sort(touched, 0, touchedSize);
+            for (int i = 0; i < touchedSize; i++) {
+                int chr = touched[i];
+                var subset = new StateSet(moved[chr]);
+                moved[chr] = null;
+                var newState = subsetMap.get(subset);
                 // 如果产生新状态
-                if (!subsetMap.containsKey(currentNfaSts)) {
-                    newState = createState(dfa, subsetMap, currentNfaSts);
-                    queue.add(newState);
-                } else {
-                    newState = subsetMap.get(currentNfaSts);
+                if (newState == null) {
+                    newState = createState(dfa, nfaStates, subsetMap, subsets, subset);
                 }
                 // 创建转移
-                DfaEdge.edge(chr).link(state, newState);
+                DfaEdge.edge((char) charset[chr]).link(state, newState);
             }
         }
         return dfa;
     }
 
-    private static DfaState createState(DfaGraph dfa, HashMap<Set<NfaState>, DfaState> subsetMap, Set<NfaState> cur) {
+    private static DfaState createState(DfaGraph dfa, List<NfaState> nfaStates,
+                                        HashMap<StateSet, DfaState> subsetMap,
+                                        List<StateSet> subsets, StateSet cur) {
         var newState = new DfaState();
         // 创建状态
         subsetMap.put(cur, newState);
-        newState.setNfaStates(cur);
-        // 处理匹配 token
-        var matchedTokens = cur.stream()
-                .map(NfaState::getMatchedToken)
-                .filter(id -> id != -1)
-                .sorted()
-                .collect(Collectors.toList());
+        subsets.add(cur);
+        var members = new HashSet<NfaState>();
+        var matchedTokens = new ArrayList<Integer>();
+        for (int w = 0; w < cur.bits.length; w++) {
+            long word = cur.bits[w];
+            while (word != 0) {
+                var nfaState = nfaStates.get((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+                members.add(nfaState);
+                // 处理匹配 token
+                if (nfaState.getMatchedToken() != -1) {
+                    matchedTokens.add(nfaState.getMatchedToken());
+                }
+            }
+        }
+        newState.setNfaStates(members);
         if (!matchedTokens.isEmpty()) {
+            matchedTokens.sort(Comparator.naturalOrder());
             newState.setMatchedTokens(matchedTokens);
         }
         // 添加状态
@@ -74,6 +136,46 @@ public class SubsetConstructAlgorithm {
         return newState;
     }
 
+    private static long[] toBits(Set<NfaState> states, int words) {
+        var bits = new long[words];
+        for (var state : states) {
+            bits[state.getId() >>> 6] |= 1L << state.getId();
+        }
+        return bits;
+    }
+
+    /**
+     * NFA 状态集合，以位图表示并缓存哈希值
+     */
+    private static final class StateSet {
+
+        private final long[] bits;
+
+        private final int hash;
+
+        StateSet(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            var other = (StateSet) o;
+            return this.hash == other.hash && Arrays.equals(this.bits, other.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
     /**
      * 获得 NFA 中的所有字符集
      */
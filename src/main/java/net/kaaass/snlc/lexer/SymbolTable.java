@@ -0,0 +1,121 @@
+package net.kaaass.snlc.lexer;
+
+import java.util.Arrays;
+
+/**
+ * 符号表，将标识符内容驻留为紧凑的整数符号号。以开放定址散列表实现，可直接以流切片查询，
+ * 无需构造临时字符串。非线程安全
+ *
+ * @author kaaass
+ */
+public class SymbolTable {
+
+    public final static int NONE = -1;
+
+    /**
+     * 散列槽，值为符号号 + 1，0 表示空槽
+     */
+    private int[] slots;
+
+    private String[] names;
+
+    private int[] hashes;
+
+    private int size = 0;
+
+    public SymbolTable() {
+        this(64);
+    }
+
+    /**
+     * @param capacity 预计符号数
+     */
+    public SymbolTable(int capacity) {
+        int slotCount = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+        this.slots = new int[slotCount];
+        this.names = new String[slotCount >> 1];
+        this.hashes = new int[slotCount >> 1];
+    }
+
+    /**
+     * 驻留内容，返回其符号号。内容首次出现时才会复制为字符串
+     */
+    public int intern(CharSequence text) {
+        int hash = hash(text);
+        int mask = this.slots.length - 1;
+        int i = hash & mask;
+        while (true) {
+            int slot = this.slots[i];
+            if (slot == 0) {
+                break;
+            }
+            if (this.hashes[slot - 1] == hash && this.names[slot - 1].contentEquals(text)) {
+                return slot - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        // 添加新符号
+        int id = this.size++;
+        this.names[id] = text.toString();
+        this.hashes[id] = hash;
+        this.slots[i] = id + 1;
+        if (this.size == this.names.length) {
+            grow();
+        }
+        return id;
+    }
+
+    /**
+     * 查询内容的符号号
+     *
+     * @return 符号号，不存在时为 NONE
+     */
+    public int lookup(CharSequence text) {
+        int hash = hash(text);
+        int mask = this.slots.length - 1;
+        for (int i = hash & mask; this.slots[i] != 0; i = (i + 1) & mask) {
+            int id = this.slots[i] - 1;
+            if (this.hashes[id] == hash && this.names[id].contentEquals(text)) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * 获得符号号对应的字符串，同一符号总是返回同一对象
+     */
+    public String name(int id) {
+        return this.names[id];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * 扩容，负载因子保持在 1/2 以下
+     */
+    private void grow() {
+        var newSlots = new int[this.slots.length << 1];
+        int mask = newSlots.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int i = this.hashes[id] & mask;
+            while (newSlots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            newSlots[i] = id + 1;
+        }
+        this.slots = newSlots;
+        this.names = Arrays.copyOf(this.names, newSlots.length >> 1);
+        this.hashes = Arrays.copyOf(this.hashes, newSlots.length >> 1);
+    }
+
+    private static int hash(CharSequence text) {
+        int h = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+}
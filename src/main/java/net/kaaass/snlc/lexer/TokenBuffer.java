@@ -0,0 +1,148 @@
+package net.kaaass.snlc.lexer;
+
+import net.kaaass.snlc.lexer.engine.ILexEngine;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+
+import java.util.Arrays;
+
+/**
+ * 以平行数组保存的 token 序列，每个 token 不再对应一个对象。
+ * 字面量 token 的内容由类型得到，其余 token 保存内容引用，驻留的 token 共享符号表中的字符串
+ *
+ * @author kaaass
+ */
+public class TokenBuffer<T extends Enum<T>> {
+
+    private final T[] types;
+
+    /**
+     * 各类型字面量 token 的字面量，非字面量为 null
+     */
+    private final String[] literals;
+
+    private int size = 0;
+
+    private int[] kind;
+
+    private int[] start;
+
+    private int[] length;
+
+    private int[] line;
+
+    private int[] column;
+
+    private int[] symbol;
+
+    private String[] text;
+
+    public TokenBuffer(Class<T> type) {
+        this(type, 256);
+    }
+
+    public TokenBuffer(Class<T> type, int capacity) {
+        this.types = type.getEnumConstants();
+        this.literals = new String[this.types.length];
+        capacity = Math.max(capacity, 16);
+        this.kind = new int[capacity];
+        this.start = new int[capacity];
+        this.length = new int[capacity];
+        this.line = new int[capacity];
+        this.column = new int[capacity];
+        this.symbol = new int[capacity];
+        this.text = new String[capacity];
+    }
+
+    /**
+     * 读入引擎的所有 Token 直至流结束
+     */
+    public static <T extends Enum<T>> TokenBuffer<T> readAll(ILexEngine<T> engine, Class<T> type)
+            throws LexParseException {
+        var ret = new TokenBuffer<>(type);
+        TokenResult<T> token;
+        while ((token = engine.nextToken()) != null) {
+            ret.add(token);
+        }
+        return ret;
+    }
+
+    public void add(TokenResult<T> token) {
+        if (this.size == this.kind.length) {
+            grow();
+        }
+        var definition = token.getDefinition();
+        int ordinal = definition.getType().ordinal();
+        int i = this.size++;
+        this.kind[i] = ordinal;
+        this.start[i] = token.getStart();
+        this.length[i] = token.getEnd() - token.getStart();
+        this.line[i] = token.getLine();
+        this.column[i] = token.getColumn();
+        this.symbol[i] = token.getSymbol();
+        var literal = definition instanceof LiteralTokenInfo<?> ?
+                ((LiteralTokenInfo<T>) definition).getLiteral() : null;
+        if (literal != null && literal.contentEquals(token.getText())) {
+            this.literals[ordinal] = literal;
+            this.text[i] = null;
+        } else {
+            this.text[i] = token.getToken();
+        }
+    }
+
+    private void grow() {
+        int newSize = this.kind.length * 2;
+        this.kind = Arrays.copyOf(this.kind, newSize);
+        this.start = Arrays.copyOf(this.start, newSize);
+        this.length = Arrays.copyOf(this.length, newSize);
+        this.line = Arrays.copyOf(this.line, newSize);
+        this.column = Arrays.copyOf(this.column, newSize);
+        this.symbol = Arrays.copyOf(this.symbol, newSize);
+        this.text = Arrays.copyOf(this.text, newSize);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public T type(int index) {
+        return this.types[this.kind[index]];
+    }
+
+    /**
+     * token 类型的序号
+     */
+    public int kind(int index) {
+        return this.kind[index];
+    }
+
+    /**
+     * 开始的流状态
+     */
+    public int start(int index) {
+        return this.start[index];
+    }
+
+    /**
+     * 流状态长度
+     */
+    public int length(int index) {
+        return this.length[index];
+    }
+
+    public int line(int index) {
+        return this.line[index];
+    }
+
+    public int column(int index) {
+        return this.column[index];
+    }
+
+    public int symbol(int index) {
+        return this.symbol[index];
+    }
+
+    public String text(int index) {
+        var ret = this.text[index];
+        return ret != null ? ret : this.literals[this.kind[index]];
+    }
+}
@@ -43,6 +43,11 @@ public class TokenInfo<T> {
      */
     private Consumer<TokenContext<T>> matchedAction = null;
 
+    /**
+     * 是否将匹配内容驻留至符号表
+     */
+    private boolean intern = false;
+
     /**
      * 设置匹配后执行的动作。若不设置则默认接受。
      */
@@ -57,6 +62,13 @@ public class TokenInfo<T> {
         action(ctx -> {});
     }
 
+    /**
+     * 将匹配内容驻留至引擎的符号表，token 内容共享同一字符串并带有符号号
+     */
+    public void intern() {
+        this.intern = true;
+    }
+
     /**
      * Token 是否仅是声明
      */
@@ -1,19 +1,85 @@
 package net.kaaass.snlc.lexer;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
+import lombok.ToString;
 
 /**
- * Token 匹配结果
+ * Token 匹配结果。由引擎产生的 token 记录匹配的起止流状态，匹配内容以视图保存，首次获取时才转为字符串
  * @author kaaass
  */
 @Data
 @RequiredArgsConstructor
-@AllArgsConstructor
 public class TokenResult<T> {
 
     private final TokenInfo<T> definition;
 
     private String token;
+
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private CharSequence text = null;
+
+    /**
+     * 匹配开始的流状态，-1 表示未知
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int start = -1;
+
+    /**
+     * 匹配结束的流状态，-1 表示未知
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int end = -1;
+
+    /**
+     * 开始处的行号，从 1 开始，-1 表示未知
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int line = -1;
+
+    /**
+     * 开始处的列号，从 0 开始，-1 表示未知
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int column = -1;
+
+    /**
+     * 驻留的符号号，未驻留时为 SymbolTable.NONE
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int symbol = SymbolTable.NONE;
+
+    public TokenResult(TokenInfo<T> definition, String token) {
+        this.definition = definition;
+        this.token = token;
+    }
+
+    public TokenResult(TokenInfo<T> definition, CharSequence text, int start, int end) {
+        this.definition = definition;
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    public String getToken() {
+        if (this.token == null && this.text != null) {
+            this.token = this.text.toString();
+            this.text = null;
+        }
+        return this.token;
+    }
+
+    /**
+     * 获得匹配内容，不产生字符串
+     */
+    public CharSequence getText() {
+        return this.token != null ? this.token : this.text;
+    }
 }
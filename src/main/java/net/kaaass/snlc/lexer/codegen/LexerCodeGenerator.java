@@ -0,0 +1,238 @@
+package net.kaaass.snlc.lexer.codegen;
+
+import net.kaaass.snlc.lexer.LexContext;
+import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * 将编译后的词法分析器生成为 Java 源码。生成的引擎使用常量表进行扫描，运行时无需构造自动机
+ *
+ * @author kaaass
+ */
+public class LexerCodeGenerator {
+
+    private static final String DEFAULT_CLASS = SnlLexerFactory.GENERATED_CLASS;
+
+    private static final int VALUES_PER_LINE = 16;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    /**
+     * 生成引擎源码
+     *
+     * @param lexer         已编译的词法分析器
+     * @param lexemeType    Token 类型
+     * @param grammarExpr   运行时获得词法定义的表达式，用于绑定 token 动作
+     * @param qualifiedName 生成类的全限定名
+     */
+    public static <T> String generate(Lexer<T> lexer, Class<T> lexemeType,
+                                      String grammarExpr, String qualifiedName) {
+        var generator = new LexerCodeGenerator();
+        generator.run(lexer, lexemeType, grammarExpr, qualifiedName);
+        return generator.sb.toString();
+    }
+
+    private <T> void run(Lexer<T> lexer, Class<T> lexemeType, String grammarExpr, String qualifiedName) {
+        int split = qualifiedName.lastIndexOf('.');
+        var packageName = qualifiedName.substring(0, split);
+        var className = qualifiedName.substring(split + 1);
+        var type = lexemeType.getSimpleName();
+        var typeImport = lexemeType.getPackageName().equals(packageName) ?
+                null : lexemeType.getCanonicalName();
+        // 上下文排序，默认上下文在前
+        var contexts = new ArrayList<LexContext<T>>();
+        lexer.getContexts().values().stream()
+                .filter(ctx -> ctx.getState() != null)
+                .sorted(Comparator.comparing((LexContext<T> ctx) -> !ctx.isDefaultContext())
+                        .thenComparing(LexContext::getName))
+                .forEach(contexts::add);
+
+        line("package %s;", packageName);
+        line("");
+        line("import net.kaaass.snlc.lexer.LexContext;");
+        line("import net.kaaass.snlc.lexer.Lexer;");
+        line("import net.kaaass.snlc.lexer.engine.IRevertibleStream;");
+        line("import net.kaaass.snlc.lexer.engine.StackedEngine;");
+        line("import net.kaaass.snlc.lexer.engine.StringStream;");
+        if (typeImport != null) {
+            line("import %s;", typeImport);
+        }
+        line("");
+        if (contexts.stream().anyMatch(ctx -> ctx.getState().sparse)) {
+            line("import java.util.Arrays;");
+        }
+        line("import java.util.HashMap;");
+        line("");
+        line("/**");
+        line(" * 由 %s 生成，请勿手动修改", LexerCodeGenerator.class.getSimpleName());
+        line(" */");
+        line("public final class %s extends StackedEngine<%s> {", className, type);
+        line("");
+        line("    public static final Lexer<%s> LEXER;", type);
+        for (int i = 0; i < contexts.size(); i++) {
+            tables(i, contexts.get(i));
+        }
+        line("");
+        line("    static {");
+        line("        var states = new HashMap<String, LexContext.State>();");
+        for (int i = 0; i < contexts.size(); i++) {
+            line("        states.put(\"%s\", LexContext.State.fromTables(BOUNDS_%d, IDS_%d, TRANS_%d, ACCEPT_%d, START_%d));",
+                    escape(contexts.get(i).getName()), i, i, i, i, i);
+        }
+        line("        LEXER = %s.link(states).withEngine(%s::new);", grammarExpr, className);
+        line("    }");
+        line("");
+        line("    public %s(Lexer<%s> lexer) {", className, type);
+        line("        super(lexer);");
+        line("    }");
+        line("");
+        line("    public static %s of(IRevertibleStream stream) {", className);
+        line("        var ret = new %s(LEXER);", className);
+        line("        ret.init(stream);");
+        line("        return ret;");
+        line("    }");
+        line("");
+        line("    public static %s of(String input) {", className);
+        line("        return of(new StringStream(input));");
+        line("    }");
+        line("");
+        line("    @Override");
+        line("    protected char scan(LexContext<%s> context) {", type);
+        line("        switch (context.getName()) {");
+        for (int i = 0; i < contexts.size(); i++) {
+            line("            case \"%s\":", escape(contexts.get(i).getName()));
+            line("                return scan%d();", i);
+        }
+        line("            default:");
+        line("                return super.scan(context);");
+        line("        }");
+        line("    }");
+        for (int i = 0; i < contexts.size(); i++) {
+            scanMethod(i, contexts.get(i).getState());
+        }
+        line("}");
+    }
+
+    /**
+     * 生成上下文的常量表
+     */
+    private void tables(int idx, LexContext<?> context) {
+        var state = context.getState();
+        var bounds = new int[state.bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = state.bounds[i];
+        }
+        line("");
+        line("    // 上下文 %s", context.getName());
+        line("    private static final int START_%d = %d;", idx, state.startState);
+        line("    private static final int WIDTH_%d = %d;", idx, state.charCount);
+        sb.append(String.format("    private static final char[] BOUNDS_%d = {", idx));
+        values(bounds, true);
+        sb.append(String.format("    private static final int[] IDS_%d = {", idx));
+        values(state.boundIds, false);
+        sb.append(String.format("    private static final int[] DENSE_%d = {", idx));
+        values(state.charTable, false);
+        sb.append(String.format("    private static final int[] TRANS_%d = {", idx));
+        values(state.transTable, false);
+        line("    private static final int[][] ACCEPT_%d = {", idx);
+        for (var accept : state.acceptTable) {
+            sb.append("            {");
+            for (int i = 0; i < accept.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(accept[i]);
+            }
+            sb.append("},\n");
+        }
+        line("    };");
+    }
+
+    /**
+     * 生成上下文的扫描循环
+     */
+    private void scanMethod(int idx, LexContext.State state) {
+        line("");
+        line("    private char scan%d() {", idx);
+        line("        int state = START_%d;", idx);
+        line("        char chr;");
+        line("        while (true) {");
+        line("            chr = read();");
+        line("            if (chr == IRevertibleStream.EOF) {");
+        line("                break;");
+        line("            }");
+        if (state.sparse) {
+            line("            int chrId;");
+            line("            if (chr < DENSE_%d.length) {", idx);
+            line("                chrId = DENSE_%d[chr];", idx);
+            line("            } else {");
+            line("                int pos = Arrays.binarySearch(BOUNDS_%d, chr);", idx);
+            line("                chrId = IDS_%d[pos < 0 ? -pos - 2 : pos];", idx);
+            line("            }");
+        } else {
+            line("            int chrId = chr < DENSE_%d.length ? DENSE_%d[chr] : -1;", idx, idx);
+        }
+        line("            if (chrId < 0) {");
+        line("                break;");
+        line("            }");
+        line("            state = TRANS_%d[state * WIDTH_%d + chrId];", idx, idx);
+        line("            if (state < 0) {");
+        line("                break;");
+        line("            }");
+        line("            var matched = ACCEPT_%d[state];", idx);
+        line("            for (int i = matched.length - 1; i >= 0; i--) {");
+        line("                pushMatched(matched[i]);");
+        line("            }");
+        line("        }");
+        line("        return chr;");
+        line("    }");
+    }
+
+    private void values(int[] values, boolean asChar) {
+        sb.append('\n');
+        for (int i = 0; i < values.length; i++) {
+            if (i % VALUES_PER_LINE == 0) {
+                sb.append("            ");
+            }
+            // 字符也以整数输出，避免 unicode 转义被提前解析
+            sb.append(asChar ? String.format("0x%04x", values[i]) : String.valueOf(values[i]));
+            sb.append(',');
+            sb.append(i % VALUES_PER_LINE == VALUES_PER_LINE - 1 || i == values.length - 1 ? '\n' : ' ');
+        }
+        sb.append("    };\n");
+    }
+
+    private void line(String format, Object... args) {
+        sb.append(String.format(format, args)).append('\n');
+    }
+
+    private static String escape(String str) {
+        return str.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * 生成 SNL 词法引擎
+     *
+     * @param args 输出目录、生成类全限定名（可选）
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法：LexerCodeGenerator <输出目录> [类名]");
+            System.exit(1);
+        }
+        var qualifiedName = args.length > 1 ? args[1] : DEFAULT_CLASS;
+        var source = generate(SnlLexerFactory.create(), SnlLexeme.class,
+                SnlLexerFactory.class.getCanonicalName() + ".grammar()", qualifiedName);
+        var file = Path.of(args[0], qualifiedName.replace('.', '/') + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source, StandardCharsets.UTF_8);
+    }
+}
@@ -5,7 +5,7 @@ import lombok.Getter;
 import java.util.*;
 
 /**
- * 序列化 DFA
+ * 序列化 DFA。边上为字符等价类编号时，每个等价类对应一列
  *
  * @author kaaass
  */
@@ -26,6 +26,16 @@ public class DfaSimplifier {
         // 等价类划分
         var groups = groupMatrix(transMat, initGroup);
         // 构造新图
+        return buildGraph(input, groups);
+    }
+
+    /**
+     * 以状态等价类构造化简后的新图
+     *
+     * @param input  原图
+     * @param groups 状态等价类
+     */
+    public static DfaGraph buildGraph(DfaGraph input, List<Set<Integer>> groups) {
         var newGraph = new DfaGraph();
         // 创建状态
         DfaState startState = null;
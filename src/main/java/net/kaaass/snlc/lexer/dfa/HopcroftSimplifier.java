@@ -0,0 +1,170 @@
+package net.kaaass.snlc.lexer.dfa;
+
+import java.util.*;
+
+/**
+ * Hopcroft 划分细化法化简 DFA。与 DfaSimplifier 得到相同的等价类，但复杂度为 O(n·|Σ|·log n)
+ *
+ * @author kaaass
+ */
+public class HopcroftSimplifier {
+
+    /**
+     * 执行简化操作
+     */
+    public static DfaGraph run(DfaGraph input) {
+        // 计算转移矩阵
+        var serializer = DfaSerializer.on(input, DfaSerializer.TRANS);
+        var transMat = serializer.getTransMat();
+        // 初始化分组
+        var initGroup = DfaSimplifier.calcInitGroup(input);
+        // 等价类划分
+        var groups = groupMatrix(transMat, initGroup);
+        // 构造新图
+        return DfaSimplifier.buildGraph(input, groups);
+    }
+
+    /**
+     * 状态转移矩阵分组。死状态作为单独的汇点参与划分，因此不会与任何实际状态合并
+     *
+     * @param mat       状态转移矩阵
+     * @param initGroup 初始划分
+     * @return 划分得到的状态等价类
+     */
+    public static List<Set<Integer>> groupMatrix(int[][] mat, List<Set<Integer>> initGroup) {
+        int n = mat.length;
+        int m = n > 0 ? mat[0].length : 0;
+        // 汇点编号为 n
+        int total = n + 1;
+        // 逆转移表，preds[predStart[a * total + q] .. predStart[a * total + q + 1]) 为经 a 到达 q 的状态
+        var predStart = new int[m * total + 1];
+        var preds = new int[m * total];
+        for (int q = 0; q < total; q++) {
+            for (int a = 0; a < m; a++) {
+                predStart[a * total + target(mat, n, q, a) + 1]++;
+            }
+        }
+        for (int i = 0; i < m * total; i++) {
+            predStart[i + 1] += predStart[i];
+        }
+        var fill = Arrays.copyOf(predStart, m * total);
+        for (int q = 0; q < total; q++) {
+            for (int a = 0; a < m; a++) {
+                preds[fill[a * total + target(mat, n, q, a)]++] = q;
+            }
+        }
+        // 划分：elems 中每个块占据连续区间 [blockStart, blockEnd)
+        var elems = new int[total];
+        var loc = new int[total];
+        var blockOf = new int[total];
+        var blockStart = new int[total];
+        var blockEnd = new int[total];
+        var marked = new int[total];
+        int blocks = 0;
+        int size = 0;
+        for (var group : initGroup) {
+            if (group.isEmpty()) {
+                continue;
+            }
+            blockStart[blocks] = size;
+            for (int q : group) {
+                elems[size] = q;
+                loc[q] = size;
+                blockOf[q] = blocks;
+                size++;
+            }
+            blockEnd[blocks++] = size;
+        }
+        // 汇点单独成块
+        blockStart[blocks] = size;
+        elems[size] = n;
+        loc[n] = size;
+        blockOf[n] = blocks;
+        blockEnd[blocks++] = ++size;
+        // 待处理的分割块
+        var work = new int[total];
+        var inWork = new boolean[total];
+        int workSize = 0;
+        for (int b = 0; b < blocks; b++) {
+            work[workSize++] = b;
+            inWork[b] = true;
+        }
+        var splitter = new int[total];
+        var touched = new int[total];
+        while (workSize > 0) {
+            int s = work[--workSize];
+            inWork[s] = false;
+            // 分割块自身可能被划分，先复制
+            int splitterSize = blockEnd[s] - blockStart[s];
+            System.arraycopy(elems, blockStart[s], splitter, 0, splitterSize);
+            for (int a = 0; a < m; a++) {
+                int touchedSize = 0;
+                // 标记所有经 a 进入分割块的状态，移至所在块的前部
+                for (int i = 0; i < splitterSize; i++) {
+                    int base = a * total + splitter[i];
+                    for (int j = predStart[base]; j < predStart[base + 1]; j++) {
+                        int p = preds[j];
+                        int b = blockOf[p];
+                        if (marked[b] == 0) {
+                            touched[touchedSize++] = b;
+                        }
+                        int to = blockStart[b] + marked[b]++;
+                        int from = loc[p];
+                        elems[from] = elems[to];
+                        loc[elems[from]] = from;
+                        elems[to] = p;
+                        loc[p] = to;
+                    }
+                }
+                // 划分被部分标记的块
+                for (int i = 0; i < touchedSize; i++) {
+                    int b = touched[i];
+                    int count = marked[b];
+                    marked[b] = 0;
+                    if (count == blockEnd[b] - blockStart[b]) {
+                        continue;
+                    }
+                    int nb = blocks++;
+                    blockStart[nb] = blockStart[b];
+                    blockEnd[nb] = blockStart[b] + count;
+                    blockStart[b] = blockEnd[nb];
+                    for (int j = blockStart[nb]; j < blockEnd[nb]; j++) {
+                        blockOf[elems[j]] = nb;
+                    }
+                    // 原块已待处理则加入新块，否则只需加入较小的块
+                    int push = nb;
+                    if (!inWork[b] && blockEnd[b] - blockStart[b] < count) {
+                        push = b;
+                    }
+                    work[workSize++] = push;
+                    inWork[push] = true;
+                }
+            }
+        }
+        // 收集结果，去除汇点所在块
+        var result = new ArrayList<Set<Integer>>();
+        for (int b = 0; b < blocks; b++) {
+            if (b == blockOf[n]) {
+                continue;
+            }
+            var group = new TreeSet<Integer>();
+            for (int i = blockStart[b]; i < blockEnd[b]; i++) {
+                group.add(elems[i]);
+            }
+            result.add(group);
+        }
+        result.sort(Comparator.comparingInt(Collections::min));
+        return result;
+    }
+
+    /**
+     * 含汇点的转移
+     */
+    private static int target(int[][] mat, int n, int q, int a) {
+        if (q == n) {
+            return n;
+        }
+        int to = mat[q][a];
+        return to == DfaState.DEAD ? n : to;
+    }
+}
@@ -3,10 +3,13 @@ package net.kaaass.snlc.lexer.engine;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.SneakyThrows;
+import lombok.Value;
 import net.kaaass.snlc.lexer.*;
 import net.kaaass.snlc.lexer.exception.*;
 
+import java.util.List;
 import java.util.Stack;
 import java.util.function.Supplier;
 
@@ -30,6 +33,25 @@ public abstract class BaseLexEngine<T> implements ILexEngine<T> {
 
     protected int position = -1;
 
+    /**
+     * 当前 token 开始处的行与列
+     */
+    protected int tokenLine = -1;
+
+    protected int tokenPosition = -1;
+
+    /**
+     * 上次读入时流已结束且没有匹配
+     */
+    protected boolean eof = false;
+
+    /**
+     * 符号表，驻留需要驻留的 token 内容。可在多次解析间共享
+     */
+    @Getter
+    @Setter
+    protected SymbolTable symbolTable = new SymbolTable();
+
     /**
      * 初始化引擎以读入流
      */
@@ -46,9 +68,78 @@ public abstract class BaseLexEngine<T> implements ILexEngine<T> {
         reset();
     }
 
+    /**
+     * 从快照处开始读入流。流需能回退到快照的流状态
+     */
+    public void init(IRevertibleStream stream, Checkpoint<T> checkpoint) {
+        this.stream = stream;
+        this.stream.revert(checkpoint.getStreamState());
+        this.contextStack.clear();
+        this.contextStack.addAll(checkpoint.getContexts());
+        this.currentContext = this.contextStack.peek();
+        this.line = checkpoint.getLine();
+        this.position = checkpoint.getPosition();
+        this.eof = false;
+        reset();
+    }
+
+    /**
+     * 当前引擎状态的快照。两次 token 匹配之间，引擎的后续匹配结果仅由快照决定
+     */
+    public Checkpoint<T> checkpoint() {
+        return new Checkpoint<>(this.stream.getState(), this.line, this.position, List.copyOf(this.contextStack));
+    }
+
+    /**
+     * 当前行号，从 1 开始
+     */
+    public int getLine() {
+        return this.line;
+    }
+
+    /**
+     * 当前列号，从 0 开始
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * 上下文栈深度，仅有默认上下文时为 1
+     */
+    public int getContextDepth() {
+        return this.contextStack.size();
+    }
+
     @Override
     public TokenResult<T> readToken() throws LexParseException {
+        var result = readTokenOnce();
+        if (this.eof) {
+            var e = new EofParseException();
+            e.setLine(this.line);
+            e.setPosition(this.position);
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * 读入下一个 Token，流结束不产生异常
+     */
+    @Override
+    public TokenResult<T> nextToken() throws LexParseException {
         TokenResult<T> result;
+        do {
+            result = readTokenOnce();
+        } while (result == null && !this.eof);
+        return result;
+    }
+
+    private TokenResult<T> readTokenOnce() throws LexParseException {
+        TokenResult<T> result;
+        this.eof = false;
+        this.tokenLine = this.line;
+        this.tokenPosition = this.position;
         // 匹配
         try {
             result = readToken(this.currentContext);
@@ -58,7 +149,7 @@ public abstract class BaseLexEngine<T> implements ILexEngine<T> {
             throw e;
         }
         // 结束解析时上下文栈非空
-        if (this.stream.isEof() && this.contextStack.size() > 1) {
+        if (!this.eof && this.stream.isEof() && this.contextStack.size() > 1) {
             throw new ContextStackNonEmptyException();
         }
         return result;
@@ -87,49 +178,71 @@ public abstract class BaseLexEngine<T> implements ILexEngine<T> {
     }
 
     /**
-     * 处理单次匹配结果
+     * 处理单次匹配结果。调用时流应处于匹配开始状态
      */
     protected ActionResult<T> processMatchedToken(LexContext<T> context, MatchedInfo matchedInfo) {
         var tokenId = matchedInfo.getAcceptedToken();
+        var startStreamState = this.stream.getState();
         var endStreamState = matchedInfo.getStreamState();
         var tokenInfo = context.getToken(tokenId);
         var action = tokenInfo.getMatchedAction();
+        ActionResult<T> result;
         // 如果没有设置动作，直接接受
         if (action == null) {
-            String matched;
+            TokenResult<T> token;
             // LiteralTokenInfo 可以直接获得声明时使用的字面量
             if (tokenInfo instanceof LiteralTokenInfo<?>) {
-                matched = ((LiteralTokenInfo<T>) tokenInfo).getLiteral();
+                token = acceptToken(context, tokenInfo, ((LiteralTokenInfo<T>) tokenInfo).getLiteral());
             } else {
-                matched = getMatchedString(endStreamState);
+                token = acceptToken(context, tokenInfo, startStreamState, endStreamState);
             }
-            return ActionResult.accept(acceptToken(context,
-                    tokenInfo,
-                    matched));
+            result = ActionResult.accept(token);
+        } else {
+            // 否则调用 action
+            // 准备上下文
+            var ctx = new DefaultTokenContext(tokenInfo.getType(), startStreamState, endStreamState);
+            // 调用
+            action.accept(ctx);
+            result = ctx.getResult();
         }
-        // 否则调用 action
-        // 准备上下文
-        var ctx = new DefaultTokenContext(tokenInfo.getType(), endStreamState);
-        // 调用
-        action.accept(ctx);
-        // 返回结果
-        return ctx.getResult();
+        // 记录 token 位置
+        var token = result.getToken();
+        if (token != null) {
+            token.setStart(startStreamState);
+            token.setEnd(endStreamState);
+            token.setLine(this.tokenLine);
+            token.setColumn(this.tokenPosition);
+        }
+        return result;
     }
 
     /**
      * 接受 Token
      */
     protected TokenResult<T> acceptToken(LexContext<T> context, TokenInfo<T> type, String content) {
-        var token = new TokenResult<>(type);
-        token.setToken(content);
-        return token;
+        return new TokenResult<>(type, content);
+    }
+
+    /**
+     * 以匹配区间接受 Token，内容为流的切片，不复制字符。需要驻留的内容以切片查询符号表
+     */
+    protected TokenResult<T> acceptToken(LexContext<T> context, TokenInfo<T> type,
+                                         int startStreamState, int endStreamState) {
+        var text = this.stream.slice(startStreamState, endStreamState);
+        if (!type.isIntern()) {
+            return new TokenResult<>(type, text, startStreamState, endStreamState);
+        }
+        int symbol = this.symbolTable.intern(text);
+        var ret = new TokenResult<>(type, this.symbolTable.name(symbol), startStreamState, endStreamState);
+        ret.setSymbol(symbol);
+        return ret;
     }
 
     /**
      * 获得匹配 token 的字符串
      */
-    protected String getMatchedString(int endStreamState) {
-        return this.stream.readUntilState(endStreamState);
+    protected String getMatchedString(int startStreamState, int endStreamState) {
+        return this.stream.slice(startStreamState, endStreamState).toString();
     }
 
     /**
@@ -173,6 +286,7 @@ public abstract class BaseLexEngine<T> implements ILexEngine<T> {
     public class DefaultTokenContext extends TokenInfo.TokenContext<T> {
 
         private final T curType;
+        private final int startStreamState;
         private final int endStreamState;
         private final ActionResult<T> result = new ActionResult<>();
 
@@ -197,7 +311,7 @@ public abstract class BaseLexEngine<T> implements ILexEngine<T> {
 
         @Override
         public String matchedString() {
-            return getMatchedString(this.endStreamState);
+            return getMatchedString(this.startStreamState, this.endStreamState);
         }
 
         @SneakyThrows
@@ -258,6 +372,32 @@ public abstract class BaseLexEngine<T> implements ILexEngine<T> {
         }
     }
 
+    /**
+     * 引擎状态快照
+     */
+    @Value
+    public static class Checkpoint<T> {
+
+        int streamState;
+
+        int line;
+
+        int position;
+
+        /**
+         * 上下文栈，栈底在前
+         */
+        List<LexContext<T>> contexts;
+
+        /**
+         * 位于流状态处、仅有默认上下文的快照
+         */
+        public static <T> Checkpoint<T> of(Lexer<T> lexer, int streamState, int line, int position) {
+            return new Checkpoint<>(streamState, line, position,
+                    List.of(lexer.getContexts().get(LexContext.DEFAULT)));
+        }
+    }
+
     /**
      * 匹配信息
      */
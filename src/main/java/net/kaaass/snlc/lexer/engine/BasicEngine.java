@@ -2,9 +2,9 @@ package net.kaaass.snlc.lexer.engine;
 
 import net.kaaass.snlc.lexer.LexContext;
 import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.TokenInfo;
 import net.kaaass.snlc.lexer.TokenResult;
 import net.kaaass.snlc.lexer.dfa.DfaState;
-import net.kaaass.snlc.lexer.exception.EofParseException;
 import net.kaaass.snlc.lexer.exception.LexParseException;
 import net.kaaass.snlc.lexer.exception.UnexpectedCharException;
 
@@ -26,7 +26,11 @@ public class BasicEngine<T> extends BaseLexEngine<T> {
     @Override
     protected TokenResult<T> readToken(LexContext<T> context) throws LexParseException {
         int initStreamState = this.stream.getState();
-        MatchedInfo matchedInfo = null;
+        // 最后一次匹配信息，匹配结束后再创建 MatchedInfo
+        int acceptedToken = TokenInfo.DEAD;
+        int acceptedStreamState = 0;
+        int acceptedLine = 0;
+        int acceptedPosition = 0;
         // 匹配
         var dfa = context.getState();
         int state = dfa.startState;
@@ -40,21 +44,28 @@ public class BasicEngine<T> extends BaseLexEngine<T> {
                 break;
             }
             // 获取字符号
-            var chrId = dfa.charMap.get(chr);
-            if (chrId == null) {
+            int chrId = dfa.charId(chr);
+            if (chrId == DfaState.DEAD) {
                 break;
             }
             // 转移状态
-            state = dfa.transMat[state][chrId];
+            state = dfa.next(state, chrId);
             if (state == DfaState.DEAD) {
                 break;
             }
             // 检查匹配
-            var matched = dfa.tokenMat.get(state);
-            if (matched != null && !matched.isEmpty()) {
-                matchedInfo = createMatchedInfo(matched.get(0));
+            var matched = dfa.acceptTable[state];
+            if (matched.length > 0) {
+                acceptedToken = matched[0];
+                acceptedStreamState = this.stream.getState();
+                acceptedLine = this.line;
+                acceptedPosition = this.position;
             }
         }
+        MatchedInfo matchedInfo = null;
+        if (acceptedToken != TokenInfo.DEAD) {
+            matchedInfo = new MatchedInfo(acceptedToken, acceptedStreamState, acceptedLine, acceptedPosition);
+        }
         // 是否有匹配
         if (matchedInfo != null) {
             // 回退流到初始状态，用于获取匹配内容
@@ -76,9 +87,10 @@ public class BasicEngine<T> extends BaseLexEngine<T> {
                     return null;
             }
         }
-        // 如果是 eof 报错
+        // 如果是 eof 则标记流结束
         if (eofFlag) {
-            throw new EofParseException();
+            this.eof = true;
+            return null;
         }
         throw new UnexpectedCharException(chr);
     }
@@ -0,0 +1,200 @@
+package net.kaaass.snlc.lexer.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于通道的读入流。解码后的字符存放在环形缓冲区中，接受的状态之前的字符会被丢弃，
+ * 因此内存占用只与最长的未接受片段有关。缓冲区不足时自动扩容
+ * <p>
+ * 与 {@link MappedFileStream} 一致，非法的字节序列解码为 U+FFFD。读入时通道的 I/O 错误
+ * 以 {@link UncheckedIOException} 抛出
+ *
+ * @author kaaass
+ */
+public class ChannelStream implements IRevertibleStream, Closeable {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private final ReadableByteChannel channel;
+
+    private final CharsetDecoder decoder;
+
+    private final ByteBuffer bytes;
+
+    /**
+     * 缓冲区尾部空间不足一个代理对时的临时区
+     */
+    private final char[] spill = new char[2];
+
+    private char[] ring;
+
+    private int mask;
+
+    /**
+     * 已接受的状态，即缓冲区中保留的第一个字符
+     */
+    private int start = 0;
+
+    /**
+     * 已解码字符的结束状态
+     */
+    private int end = 0;
+
+    private int pos = 0;
+
+    private boolean inputEof = false;
+
+    private boolean flushed = false;
+
+    public ChannelStream(ReadableByteChannel channel) {
+        this(channel, StandardCharsets.UTF_8);
+    }
+
+    public ChannelStream(ReadableByteChannel channel, Charset charset) {
+        this(channel, charset, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 初始缓冲区大小，向上取整为 2 的幂
+     */
+    public ChannelStream(ReadableByteChannel channel, Charset charset, int capacity) {
+        this.channel = channel;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(Math.max(capacity, 16));
+        this.bytes.flip();
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.ring = new char[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 以 UTF-8 打开文件
+     */
+    public static ChannelStream open(Path path) throws IOException {
+        return new ChannelStream(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    @Override
+    public int getState() {
+        return this.pos;
+    }
+
+    @Override
+    public void revert(int state) {
+        this.pos = state;
+    }
+
+    @Override
+    public void accept(int state) {
+        this.start = state;
+    }
+
+    @Override
+    public char read() {
+        if (this.pos == this.end && !fill()) {
+            return EOF;
+        }
+        return this.ring[this.pos++ & this.mask];
+    }
+
+    /**
+     * 接受后缓冲区内容会被覆盖，因此直接复制为字符串
+     */
+    @Override
+    public CharSequence slice(int start, int end) {
+        int offset = start & this.mask;
+        int len = end - start;
+        if (offset + len <= this.ring.length) {
+            return new String(this.ring, offset, len);
+        }
+        int head = this.ring.length - offset;
+        var ret = new char[len];
+        System.arraycopy(this.ring, offset, ret, 0, head);
+        System.arraycopy(this.ring, 0, ret, head, len - head);
+        return new String(ret);
+    }
+
+    @Override
+    public boolean isEof() {
+        return this.pos == this.end && !fill();
+    }
+
+    /**
+     * 解码更多字符至缓冲区
+     *
+     * @return 是否读入了新字符
+     * @throws UncheckedIOException 读取通道失败
+     */
+    private boolean fill() {
+        while (!this.flushed) {
+            int free = this.ring.length - (this.end - this.start);
+            int offset = this.end & this.mask;
+            int len = Math.min(free, this.ring.length - offset);
+            if (free < 2) {
+                // 保证代理对能够完整写入
+                grow();
+                continue;
+            }
+            boolean spilled = len < 2;
+            var out = spilled ? CharBuffer.wrap(this.spill) : CharBuffer.wrap(this.ring, offset, len);
+            var result = this.decoder.decode(this.bytes, out, this.inputEof);
+            if (this.inputEof && result.isUnderflow()) {
+                this.flushed = this.decoder.flush(out).isUnderflow();
+            }
+            int produced = spilled ? out.position() : out.position() - offset;
+            for (int i = 0; spilled && i < produced; i++) {
+                this.ring[(this.end + i) & this.mask] = this.spill[i];
+            }
+            this.end += produced;
+            if (produced > 0) {
+                return true;
+            }
+            if (result.isOverflow()) {
+                grow();
+            } else if (!this.inputEof) {
+                // 读入更多字节
+                this.bytes.compact();
+                try {
+                    this.inputEof = this.channel.read(this.bytes) < 0;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    this.bytes.flip();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 扩容缓冲区，保留已接受状态之后的字符
+     */
+    private void grow() {
+        var newRing = new char[this.ring.length << 1];
+        int newMask = newRing.length - 1;
+        for (int i = this.start; i != this.end; i++) {
+            newRing[i & newMask] = this.ring[i & this.mask];
+        }
+        this.ring = newRing;
+        this.mask = newMask;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
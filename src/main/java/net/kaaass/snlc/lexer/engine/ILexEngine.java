@@ -20,20 +20,30 @@ public interface ILexEngine<T> {
      */
     TokenResult<T> readToken() throws LexParseException;
 
+    /**
+     * 读入下一个 Token，跳过被忽略的 Token
+     * @return 输入流结束时返回 null
+     */
+    default TokenResult<T> nextToken() throws LexParseException {
+        TokenResult<T> token;
+        try {
+            do {
+                token = readToken();
+            } while (token == null);
+        } catch (EofParseException ignore) {
+            return null;
+        }
+        return token;
+    }
+
     /**
      * 读入所有 Token 直至流结束
      */
     default List<TokenResult<T>> readAllTokens() throws LexParseException {
         var ret = new ArrayList<TokenResult<T>>();
         TokenResult<T> token;
-        try {
-            //noinspection InfiniteLoopStatement
-            while (true) {
-                if ((token = readToken()) != null) {
-                    ret.add(token);
-                }
-            }
-        } catch (EofParseException ignore) {
+        while ((token = nextToken()) != null) {
+            ret.add(token);
         }
         return ret;
     }
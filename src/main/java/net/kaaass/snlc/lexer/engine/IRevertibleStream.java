@@ -40,4 +40,15 @@ public interface IRevertibleStream {
         }
         return sb.toString();
     }
+
+    /**
+     * 获得两状态间的内容，不改变当前流状态。开始状态必须大于等于上次接受号状态
+     */
+    default CharSequence slice(int start, int end) {
+        int state = getState();
+        revert(start);
+        var ret = readUntilState(end);
+        revert(state);
+        return ret;
+    }
 }
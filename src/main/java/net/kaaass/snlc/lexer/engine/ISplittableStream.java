@@ -0,0 +1,24 @@
+package net.kaaass.snlc.lexer.engine;
+
+/**
+ * 可划分的读入流，用于并行词法分析。各副本共享数据，读入位置相互独立
+ *
+ * @author kaaass
+ */
+public interface ISplittableStream extends IRevertibleStream {
+
+    /**
+     * 创建位于流开始处的副本
+     */
+    ISplittableStream fork();
+
+    /**
+     * 数据长度，单位与 seek 一致
+     */
+    long length();
+
+    /**
+     * 移动到指定位置。位置可能位于字符中间，此时之后读入的首个字符不完整
+     */
+    void seek(long position);
+}
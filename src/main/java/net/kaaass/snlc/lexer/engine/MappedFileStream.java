@@ -0,0 +1,256 @@
+package net.kaaass.snlc.lexer.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射文件的 UTF-8 读入流，直接从映射内存解码，不缓存字符。
+ * 流状态为字节偏移；辅助平面字符的高代理已读出时，状态为该字符首字节之后的偏移，
+ * 此偏移不是字符边界，不会与其他状态混淆，因此状态保持有序，文件大小上限与单个映射相同，即 2 GiB。
+ * 非法的字节序列解码为 U+FFFD
+ * <p>
+ * 映射无法主动解除，关闭流只释放流对映射内存的引用，映射在切片等引用均不可达后由 GC 解除
+ *
+ * @author kaaass
+ */
+public class MappedFileStream implements ISplittableStream, Closeable {
+
+    public static final int MAX_SIZE = Integer.MAX_VALUE;
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private static final ByteBuffer CLOSED = ByteBuffer.allocate(0);
+
+    private ByteBuffer buffer;
+
+    private int limit;
+
+    private int pos;
+
+    /**
+     * 当前字符的高代理已读出，下次读入低代理
+     */
+    private boolean pendingLow = false;
+
+    /**
+     * 当前字符的字节长度
+     */
+    private int charSize = 0;
+
+    public MappedFileStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        // 跳过 BOM
+        boolean bom = this.limit >= 3 &&
+                (buffer.get(0) & 0xff) == 0xef &&
+                (buffer.get(1) & 0xff) == 0xbb &&
+                (buffer.get(2) & 0xff) == 0xbf;
+        this.pos = bom ? 3 : 0;
+    }
+
+    /**
+     * 只读映射整个文件
+     */
+    public static MappedFileStream open(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE) {
+                throw new IOException("文件过大：" + path);
+            }
+            return new MappedFileStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @Override
+    public int getState() {
+        return this.pendingLow ? this.pos + 1 : this.pos;
+    }
+
+    @Override
+    public void revert(int state) {
+        // 状态位于合法四字节序列的首字节之后，即该字符的高代理已读出
+        if (state > 0 && state < this.limit && (this.buffer.get(state - 1) & 0xf8) == 0xf0) {
+            this.pos = state - 1;
+            if (!Character.isBmpCodePoint(decode())) {
+                this.pendingLow = true;
+                return;
+            }
+        }
+        this.pos = state;
+        this.pendingLow = false;
+    }
+
+    @Override
+    public void accept(int state) {
+        // 映射内存由操作系统换页，无需丢弃
+    }
+
+    @Override
+    public char read() {
+        if (isEof()) {
+            return EOF;
+        }
+        int codePoint = decode();
+        if (this.pendingLow) {
+            this.pendingLow = false;
+            this.pos += this.charSize;
+            return Character.lowSurrogate(codePoint);
+        }
+        if (Character.isBmpCodePoint(codePoint)) {
+            this.pos += this.charSize;
+            return (char) codePoint;
+        }
+        this.pendingLow = true;
+        return Character.highSurrogate(codePoint);
+    }
+
+    @Override
+    public boolean isEof() {
+        return this.pos >= this.limit;
+    }
+
+    @Override
+    public MappedFileStream fork() {
+        return new MappedFileStream(this.buffer.duplicate());
+    }
+
+    /**
+     * 字节长度
+     */
+    @Override
+    public long length() {
+        return this.limit;
+    }
+
+    /**
+     * 移动到字节偏移处。UTF-8 的续字节解码为 U+FFFD，不会与 ASCII 字符混淆；
+     * 位于辅助平面字符首字节之后时，首个读入的字符为其低代理
+     */
+    @Override
+    public void seek(long position) {
+        revert((int) Math.min(position, this.limit));
+    }
+
+    /**
+     * 纯 ASCII 的区间直接引用映射内存，不复制字节
+     */
+    @Override
+    public CharSequence slice(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (this.buffer.get(i) < 0) {
+                return ISplittableStream.super.slice(start, end);
+            }
+        }
+        return new AsciiSequence(this.buffer, start, end);
+    }
+
+    /**
+     * 释放对映射内存的引用，之后流为空
+     */
+    @Override
+    public void close() {
+        this.buffer = CLOSED;
+        this.limit = 0;
+        this.pos = 0;
+        this.pendingLow = false;
+    }
+
+    /**
+     * 解码当前位置的码点，并记录字节长度
+     */
+    private int decode() {
+        int b0 = this.buffer.get(this.pos) & 0xff;
+        if (b0 < 0x80) {
+            this.charSize = 1;
+            return b0;
+        }
+        int size;
+        int codePoint;
+        int min;
+        if (b0 >= 0xc2 && b0 < 0xe0) {
+            size = 2;
+            codePoint = b0 & 0x1f;
+            min = 0x80;
+        } else if (b0 >= 0xe0 && b0 < 0xf0) {
+            size = 3;
+            codePoint = b0 & 0x0f;
+            min = 0x800;
+        } else if (b0 >= 0xf0 && b0 < 0xf5) {
+            size = 4;
+            codePoint = b0 & 0x07;
+            min = 0x10000;
+        } else {
+            this.charSize = 1;
+            return REPLACEMENT;
+        }
+        for (int i = 1; i < size; i++) {
+            if (this.pos + i >= this.limit) {
+                this.charSize = i;
+                return REPLACEMENT;
+            }
+            int b = this.buffer.get(this.pos + i) & 0xff;
+            if ((b & 0xc0) != 0x80) {
+                this.charSize = i;
+                return REPLACEMENT;
+            }
+            codePoint = codePoint << 6 | (b & 0x3f);
+        }
+        this.charSize = size;
+        // 过长编码、代理区与超出范围的码点均非法
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT ||
+                (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+
+    /**
+     * 映射内存中 ASCII 字节区间的字符视图
+     */
+    private static class AsciiSequence implements CharSequence {
+
+        private final ByteBuffer buffer;
+
+        private final int start;
+
+        private final int end;
+
+        AsciiSequence(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) this.buffer.get(this.start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length()) {
+                throw new IndexOutOfBoundsException();
+            }
+            return new AsciiSequence(this.buffer, this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            var bytes = new byte[length()];
+            this.buffer.duplicate().position(this.start).get(bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -4,11 +4,10 @@ import net.kaaass.snlc.lexer.LexContext;
 import net.kaaass.snlc.lexer.Lexer;
 import net.kaaass.snlc.lexer.TokenResult;
 import net.kaaass.snlc.lexer.dfa.DfaState;
-import net.kaaass.snlc.lexer.exception.EofParseException;
 import net.kaaass.snlc.lexer.exception.LexParseException;
 import net.kaaass.snlc.lexer.exception.UnexpectedCharException;
 
-import java.util.Stack;
+import java.util.Arrays;
 
 /**
  * 栈式匹配引擎。允许追溯旧匹配信息
@@ -17,7 +16,14 @@ import java.util.Stack;
  */
 public class StackedEngine<T> extends BaseLexEngine<T> {
 
-    private final Stack<MatchedInfo> matchedStack = new Stack<>();
+    /**
+     * 匹配栈，使用平行数组保存以避免扫描时分配对象
+     */
+    private int[] matchedToken = new int[16];
+    private int[] matchedStreamState = new int[16];
+    private int[] matchedLine = new int[16];
+    private int[] matchedPosition = new int[16];
+    private int matchedSize = 0;
 
     public StackedEngine(Lexer<T> lexer) {
         super(lexer);
@@ -31,43 +37,20 @@ public class StackedEngine<T> extends BaseLexEngine<T> {
     @Override
     protected TokenResult<T> readToken(LexContext<T> context) throws LexParseException {
         int initStreamState = this.stream.getState();
-        matchedStack.clear();
+        this.matchedSize = 0;
         // 匹配
-        var dfa = context.getState();
-        int state = dfa.startState;
-        char chr;
-        boolean eofFlag = false;
-        while (true) {
-            chr = read();
-            // 流结束
-            if (chr == IRevertibleStream.EOF) {
-                eofFlag = true;
-                break;
-            }
-            // 获取字符号
-            var chrId = dfa.charMap.get(chr);
-            if (chrId == null) {
-                break;
-            }
-            // 转移状态
-            state = dfa.transMat[state][chrId];
-            if (state == DfaState.DEAD) {
-                break;
-            }
-            // 检查匹配
-            var matched = dfa.tokenMat.get(state);
-            if (matched != null && !matched.isEmpty()) {
-                for (int i = matched.size() - 1; i >= 0; i--) {
-                    matchedStack.push(createMatchedInfo(matched.get(i)));
-                }
-            }
-        }
+        char chr = scan(context);
+        boolean eofFlag = chr == IRevertibleStream.EOF;
         // 是否有匹配
-        while (!matchedStack.empty()) {
+        while (this.matchedSize > 0) {
             // 回退流到初始状态，用于获取匹配内容
             this.stream.revert(initStreamState);
             // 产生 token
-            var matchedInfo = matchedStack.peek();
+            int top = this.matchedSize - 1;
+            var matchedInfo = new MatchedInfo(this.matchedToken[top],
+                    this.matchedStreamState[top],
+                    this.matchedLine[top],
+                    this.matchedPosition[top]);
             var result = processMatchedToken(context, matchedInfo);
             switch (result.getType()) {
                 case ACCEPT:
@@ -76,7 +59,7 @@ public class StackedEngine<T> extends BaseLexEngine<T> {
                     return result.getToken();
                 case REJECT:
                     // 拒绝 Token，弹栈
-                    matchedStack.pop();
+                    this.matchedSize--;
                     continue;
                 case NONE:
                 default:
@@ -85,10 +68,63 @@ public class StackedEngine<T> extends BaseLexEngine<T> {
                     return null;
             }
         }
-        // 如果是 eof 报错
+        // 如果是 eof 则标记流结束
         if (eofFlag) {
-            throw new EofParseException();
+            this.eof = true;
+            return null;
         }
         throw new UnexpectedCharException(chr);
     }
+
+    /**
+     * 沿 DFA 扫描至无法转移，途经的所有匹配压入匹配栈
+     *
+     * @return 最后读入的字符，流结束时为 EOF
+     */
+    protected char scan(LexContext<T> context) {
+        var dfa = context.getState();
+        int state = dfa.startState;
+        char chr;
+        while (true) {
+            chr = read();
+            // 流结束
+            if (chr == IRevertibleStream.EOF) {
+                break;
+            }
+            // 获取字符号
+            int chrId = dfa.charId(chr);
+            if (chrId == DfaState.DEAD) {
+                break;
+            }
+            // 转移状态
+            state = dfa.next(state, chrId);
+            if (state == DfaState.DEAD) {
+                break;
+            }
+            // 检查匹配
+            var matched = dfa.acceptTable[state];
+            for (int i = matched.length - 1; i >= 0; i--) {
+                pushMatched(matched[i]);
+            }
+        }
+        return chr;
+    }
+
+    /**
+     * 以当前流状态压入匹配栈
+     */
+    protected final void pushMatched(int acceptedToken) {
+        if (this.matchedSize == this.matchedToken.length) {
+            int newSize = this.matchedSize * 2;
+            this.matchedToken = Arrays.copyOf(this.matchedToken, newSize);
+            this.matchedStreamState = Arrays.copyOf(this.matchedStreamState, newSize);
+            this.matchedLine = Arrays.copyOf(this.matchedLine, newSize);
+            this.matchedPosition = Arrays.copyOf(this.matchedPosition, newSize);
+        }
+        this.matchedToken[this.matchedSize] = acceptedToken;
+        this.matchedStreamState[this.matchedSize] = this.stream.getState();
+        this.matchedLine[this.matchedSize] = this.line;
+        this.matchedPosition[this.matchedSize] = this.position;
+        this.matchedSize++;
+    }
 }
@@ -2,12 +2,14 @@ package net.kaaass.snlc.lexer.engine;
 
 import lombok.Data;
 
+import java.nio.CharBuffer;
+
 /**
  * 创建字符串读入流
  * @author kaaass
  */
 @Data
-public class StringStream implements IRevertibleStream {
+public class StringStream implements ISplittableStream {
 
     private final String data;
 
@@ -36,8 +38,31 @@ public class StringStream implements IRevertibleStream {
         return this.data.charAt(this.pos++);
     }
 
+    /**
+     * 直接返回原字符串的视图
+     */
+    @Override
+    public CharSequence slice(int start, int end) {
+        return CharBuffer.wrap(this.data, start, end);
+    }
+
     @Override
     public boolean isEof() {
         return this.pos == this.data.length();
     }
+
+    @Override
+    public StringStream fork() {
+        return new StringStream(this.data);
+    }
+
+    @Override
+    public long length() {
+        return this.data.length();
+    }
+
+    @Override
+    public void seek(long position) {
+        this.pos = (int) Math.min(position, this.data.length());
+    }
 }
@@ -1,12 +1,12 @@
 package net.kaaass.snlc.lexer.exception;
 
 /**
- * 解析流结束
+ * 解析流结束。作为流程控制使用，不记录调用栈
  * @author kaaass
  */
 public class EofParseException extends LexParseException {
 
     public EofParseException() {
-        super("解析流结束");
+        super("解析流结束", null, false, false);
     }
 }
@@ -19,4 +19,9 @@ public class LexException extends Exception {
     public LexException(Throwable cause) {
         super(cause);
     }
+
+    protected LexException(String message, Throwable cause,
+                           boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
@@ -29,6 +29,11 @@ public class LexParseException extends LexException {
         super(cause);
     }
 
+    protected LexParseException(String message, Throwable cause,
+                                boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
     @Override
     public String getMessage() {
         return String.format("[%d:%d]: %s", this.line, this.position, super.getMessage());
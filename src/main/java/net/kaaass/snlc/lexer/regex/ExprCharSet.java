@@ -2,26 +2,69 @@ package net.kaaass.snlc.lexer.regex;
 
 import lombok.*;
 
+import java.util.ArrayList;
 import java.util.Set;
 import java.util.TreeSet;
 
 /**
- * 字符集正则表达式
+ * 字符集正则表达式。字符集以有序、不相交的闭区间存储，区间两端依次排列
  * @author kaaass
  */
 @Getter
-@Setter
 @EqualsAndHashCode(callSuper = false)
-@RequiredArgsConstructor
 public class ExprCharSet extends RegexExpression {
 
-    private final Set<Character> charSet;
+    private final char[] ranges;
+
+    public ExprCharSet(Set<Character> charSet) {
+        var sorted = new TreeSet<>(charSet);
+        var ranges = new ArrayList<Character>();
+        for (char chr : sorted) {
+            int last = ranges.size() - 1;
+            if (last > 0 && ranges.get(last) + 1 == chr) {
+                // 与前一区间相邻则合并
+                ranges.set(last, chr);
+            } else {
+                ranges.add(chr);
+                ranges.add(chr);
+            }
+        }
+        this.ranges = new char[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            this.ranges[i] = ranges.get(i);
+        }
+    }
 
     public ExprCharSet(char start, char end) {
-        this.charSet = new TreeSet<>();
-        for (char cur = start; cur <= end; cur++) {
-            this.charSet.add(cur);
+        this.ranges = start <= end ? new char[]{start, end} : new char[0];
+    }
+
+    private ExprCharSet(char[] ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * 展开所有字符，字符集很大时开销较高
+     */
+    public Set<Character> getCharSet() {
+        var ret = new TreeSet<Character>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int chr = ranges[i]; chr <= ranges[i + 1]; chr++) {
+                ret.add((char) chr);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * 字符数量
+     */
+    public int size() {
+        int ret = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            ret += ranges[i + 1] - ranges[i] + 1;
         }
+        return ret;
     }
 
     @Override
@@ -32,11 +75,21 @@ public class ExprCharSet extends RegexExpression {
     @Override
     public String friendlyString() {
         var ret = new StringBuilder();
-        if (charSet.size() > 1) {
+        if (size() > 1) {
             ret.append('[');
         }
-        charSet.forEach(ret::append);
-        if (charSet.size() > 1) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            char start = ranges[i];
+            char end = ranges[i + 1];
+            ret.append(start);
+            if (end - start > 1) {
+                ret.append('-');
+            }
+            if (end != start) {
+                ret.append(end);
+            }
+        }
+        if (size() > 1) {
             ret.append(']');
         }
         return ret.toString();
@@ -44,6 +97,6 @@ public class ExprCharSet extends RegexExpression {
 
     @Override
     public RegexExpression deepCopy() {
-        return new ExprCharSet(this.charSet);
+        return new ExprCharSet(this.ranges.clone());
     }
 }
@@ -1,8 +1,10 @@
 package net.kaaass.snlc.lexer.snl;
 
+import net.kaaass.snlc.lexer.LexCache;
 import net.kaaass.snlc.lexer.LexGrammar;
 import net.kaaass.snlc.lexer.Lexer;
 
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -61,11 +63,43 @@ public class SnlLexerFactory {
 
     private final static String CTX_COMMENT = "comment";
 
+    /**
+     * 构建时由 LexerCodeGenerator 生成的词法引擎
+     */
+    public final static String GENERATED_CLASS = "net.kaaass.snlc.lexer.snl.SnlGeneratedEngine";
+
     private static <T> void addSymbolByMap(LexGrammar<T> grammar, Map<String, T> map) {
         map.forEach((literal, token) -> grammar.defineToken(token, literal));
     }
 
     public static Lexer<SnlLexeme> create() {
+        return grammar().compile();
+    }
+
+    /**
+     * 创建词法分析器，编译的自动机缓存于指定目录
+     * @param cacheDir 缓存目录
+     */
+    public static Lexer<SnlLexeme> create(Path cacheDir) {
+        return grammar().compile(new LexCache(cacheDir));
+    }
+
+    /**
+     * 获得预生成的词法分析器，使用常量表驱动的引擎且无需构造自动机。类路径中没有生成的引擎时回退为运行时编译
+     */
+    @SuppressWarnings("unchecked")
+    public static Lexer<SnlLexeme> generated() {
+        try {
+            return (Lexer<SnlLexeme>) Class.forName(GENERATED_CLASS).getField("LEXER").get(null);
+        } catch (ReflectiveOperationException e) {
+            return create();
+        }
+    }
+
+    /**
+     * SNL 词法定义
+     */
+    public static LexGrammar<SnlLexeme> grammar() {
         var g = LexGrammar.<SnlLexeme>create();
 
         // 定义保留字
@@ -79,8 +113,8 @@ public class SnlLexerFactory {
         // 整型常量
         g.defineToken(INTC, digit.oneOrMany());
 
-        // 标识符
-        g.defineToken(ID, concat(alphabet, chr.many()));
+        // 标识符，驻留至符号表
+        g.defineToken(ID, concat(alphabet, chr.many())).intern();
 
         // 字符常量
         g.defineToken(CHARC, concat(single('\''), concat(chr, single('\''))));
@@ -101,6 +135,6 @@ public class SnlLexerFactory {
         // 定义空白，并忽略
         g.defineToken(WHITESPACE, charset(' ', '\t', '\n')).ignore();
 
-        return g.compile();
+        return g;
     }
 }
@@ -0,0 +1,173 @@
+package net.kaaass.snlc.parser;
+
+import lombok.Getter;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LL(1) grammar of SNL with a dense predict table, loaded from generate/grammar and generate/predict.
+ * <p>
+ * Symbols are encoded as int: a terminal is the ordinal of its SnlLexeme, a nonterminal n is ~n.
+ *
+ * @author Kevin Axel
+ */
+@Getter
+public class Grammar {
+
+    public static final String EPSILON = "EPSILON";
+
+    /**
+     * terminal column of the end of input
+     */
+    public static final int END = SnlLexeme.values().length;
+
+    private static final Map<String, SnlLexeme> SYMBOLS = Map.ofEntries(
+            Map.entry("(", SnlLexeme.LPAREN),
+            Map.entry(")", SnlLexeme.RPAREN),
+            Map.entry("*", SnlLexeme.TIMES),
+            Map.entry("+", SnlLexeme.PLUS),
+            Map.entry(",", SnlLexeme.COMMA),
+            Map.entry("-", SnlLexeme.MINUS),
+            Map.entry(".", SnlLexeme.DOT),
+            Map.entry("..", SnlLexeme.UNDERANGE),
+            Map.entry("/", SnlLexeme.OVER),
+            Map.entry(":=", SnlLexeme.ASSIGN),
+            Map.entry(";", SnlLexeme.SEMI),
+            Map.entry("<", SnlLexeme.LT),
+            Map.entry("=", SnlLexeme.EQ),
+            Map.entry("[", SnlLexeme.LMIDPAREN),
+            Map.entry("]", SnlLexeme.RMIDPAREN)
+    );
+
+    private static Grammar snl;
+
+    private final String[] nonTerminals;
+
+    /**
+     * source line of each production, e.g. "TypeDef ID"
+     */
+    private final String[] productions;
+
+    private final int[] left;
+
+    private final int[][] right;
+
+    /**
+     * [nonterminal][terminal] -> production, -1 if no production applies
+     */
+    private final int[][] table;
+
+    private Grammar(String[] nonTerminals, String[] productions, int[] left, int[][] right, int[][] table) {
+        this.nonTerminals = nonTerminals;
+        this.productions = productions;
+        this.left = left;
+        this.right = right;
+        this.table = table;
+    }
+
+    /**
+     * grammar of SNL, loaded from classpath once
+     */
+    public static synchronized Grammar snl() {
+        if (snl == null) {
+            try (var grammar = resource("snl/grammar");
+                 var predict = resource("snl/predict")) {
+                snl = load(readLines(grammar), readLines(predict));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return snl;
+    }
+
+    public static Grammar load(List<String> grammarLines, List<String> predictLines) {
+        if (grammarLines.size() != predictLines.size()) {
+            throw new IllegalArgumentException("grammar and predict sets have different size");
+        }
+        var count = grammarLines.size();
+        var lines = new ArrayList<String[]>();
+        var nonTerminals = new LinkedHashMap<String, Integer>();
+        for (var line : grammarLines) {
+            var words = line.trim().split(" ");
+            lines.add(words);
+            nonTerminals.putIfAbsent(words[0], nonTerminals.size());
+        }
+
+        var productions = new String[count];
+        var left = new int[count];
+        var right = new int[count][];
+        var table = new int[nonTerminals.size()][END + 1];
+        for (var row : table) {
+            Arrays.fill(row, -1);
+        }
+        for (int i = 0; i < count; i++) {
+            var words = lines.get(i);
+            productions[i] = String.join(" ", words);
+            left[i] = nonTerminals.get(words[0]);
+            if (words.length == 2 && words[1].equals(EPSILON)) {
+                right[i] = new int[0];
+            } else {
+                right[i] = new int[words.length - 1];
+                for (int j = 1; j < words.length; j++) {
+                    var nonTerminal = nonTerminals.get(words[j]);
+                    right[i][j - 1] = nonTerminal != null ? ~nonTerminal : terminal(words[j]);
+                }
+            }
+            for (var word : predictLines.get(i).trim().split(" ")) {
+                var column = word.equals("#") ? END : terminal(word);
+                if (table[left[i]][column] >= 0) {
+                    throw new IllegalArgumentException("grammar is not LL(1) at " + productions[i] + ", " + word);
+                }
+                table[left[i]][column] = i;
+            }
+        }
+        return new Grammar(nonTerminals.keySet().toArray(new String[0]), productions, left, right, table);
+    }
+
+    public static int terminal(String name) {
+        var ret = SYMBOLS.get(name);
+        return ret != null ? ret.ordinal() : SnlLexeme.valueOf(name).ordinal();
+    }
+
+    public int nonTerminal(String name) {
+        return Arrays.asList(nonTerminals).indexOf(name);
+    }
+
+    /**
+     * production to use for the nonterminal when the next terminal is given, -1 if none
+     */
+    public int predict(int nonTerminal, int terminal) {
+        return table[nonTerminal][terminal];
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        var ret = Grammar.class.getClassLoader().getResourceAsStream(name);
+        if (ret == null) {
+            throw new IOException("resource not found: " + name);
+        }
+        return ret;
+    }
+
+    private static List<String> readLines(InputStream input) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        var ret = new ArrayList<String>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                ret.add(line);
+            }
+        }
+        return ret;
+    }
+}
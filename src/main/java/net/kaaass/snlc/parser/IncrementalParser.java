@@ -0,0 +1,245 @@
+package net.kaaass.snlc.parser;
+
+import lombok.Getter;
+import net.kaaass.snlc.ast.NodeKind;
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.lexer.IncrementalLexer;
+import net.kaaass.snlc.lexer.TokenResult;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the AST of a token list up to date after edits.
+ * <p>
+ * The parser records token spans of procedure declarations, statement lists and statements.
+ * After an edit the smallest of them covering the changed tokens is reparsed from its
+ * nonterminal and spliced into the tree; if the new subtree does not end where the old one
+ * ended (shifted by the edit), the next enclosing one is tried, up to a full reparse.
+ * Reparsing is proportional to the edited subtree, but moving the spans after the edit still
+ * visits every statement behind it, so an update is linear in the number of statements.
+ * <p>
+ * Token lists are kept by reference and must not be modified after they are passed in, as with
+ * the lists of {@link IncrementalLexer#getTokens()}. If an update fails, the AST and tokens are
+ * kept and the next update parses its tokens from scratch.
+ *
+ * @author Kevin Axel
+ */
+public class IncrementalParser {
+
+    private List<TokenResult<SnlLexeme>> tokens;
+
+    @Getter
+    private TreeNode ast;
+
+    /**
+     * subtree rebuilt by the last update, the root after a full parse
+     */
+    @Getter
+    private TreeNode reparsed;
+
+    /**
+     * the last update failed, so the next change is not relative to the kept tokens
+     */
+    private boolean dirty = false;
+
+    public IncrementalParser(List<TokenResult<SnlLexeme>> tokens) throws TokenNotMatchException {
+        fullParse(tokens);
+    }
+
+    public TreeNode update(List<TokenResult<SnlLexeme>> tokens, IncrementalLexer.Change change)
+            throws TokenNotMatchException {
+        return update(tokens, change.getFrom(), change.getRemoved(), change.getInserted());
+    }
+
+    /**
+     * update the AST after tokens [from, from + removed) are replaced by [from, from + inserted) of the new list
+     *
+     * @return the AST
+     */
+    public TreeNode update(List<TokenResult<SnlLexeme>> tokens, int from, int removed, int inserted)
+            throws TokenNotMatchException {
+        if (this.dirty) {
+            fullParse(tokens);
+            return this.ast;
+        }
+        var old = this.tokens;
+        // the lexer may report unchanged tokens around the edit
+        while (removed > 0 && inserted > 0
+                && old.get(from + removed - 1).equals(tokens.get(from + inserted - 1))) {
+            removed--;
+            inserted--;
+        }
+        while (removed > 0 && inserted > 0 && old.get(from).equals(tokens.get(from))) {
+            from++;
+            removed--;
+            inserted--;
+        }
+        var end = from + removed;
+        var delta = inserted - removed;
+        for (var node = enclosing(from, end); node != null; node = spanParent(node)) {
+            var result = reparse(tokens, node, delta);
+            if (result != null) {
+                shift(this.ast, end, delta, result);
+                this.tokens = tokens;
+                this.reparsed = result;
+                return this.ast;
+            }
+        }
+        fullParse(tokens);
+        return this.ast;
+    }
+
+    private void fullParse(List<TokenResult<SnlLexeme>> tokens) throws TokenNotMatchException {
+        TreeNode ast;
+        try {
+            ast = Parser.of(tokens).getAst();
+        } catch (TokenNotMatchException e) {
+            this.dirty = true;
+            throw e;
+        } catch (LexParseException e) {
+            // tokens are already lexed
+            throw new IllegalStateException(e);
+        }
+        this.tokens = tokens;
+        this.ast = ast;
+        this.reparsed = ast;
+        this.dirty = false;
+    }
+
+    /**
+     * smallest node with a span covering [from, end)
+     */
+    private TreeNode enclosing(int from, int end) {
+        TreeNode ret = null;
+        var node = this.ast;
+        while (node != null) {
+            TreeNode next = null;
+            for (var child : node.getChild()) {
+                if (child.getTokenFrom() >= 0 && child.getTokenFrom() <= from && end <= child.getTokenTo()) {
+                    next = child;
+                    break;
+                }
+            }
+            if (next != null) {
+                ret = next;
+            }
+            node = next;
+        }
+        return ret;
+    }
+
+    private static TreeNode spanParent(TreeNode node) {
+        var ret = node.getParent();
+        while (ret != null && ret.getTokenFrom() < 0) {
+            ret = ret.getParent();
+        }
+        return ret;
+    }
+
+    /**
+     * reparse the region of the node, shifted by delta at its end, and replace the node
+     *
+     * @return the new node, null if the region does not parse as the same nonterminal
+     */
+    private TreeNode reparse(List<TokenResult<SnlLexeme>> tokens, TreeNode node, int delta) {
+        var from = node.getTokenFrom();
+        var to = node.getTokenTo() + delta;
+        if (to < from || to > tokens.size()) {
+            return null;
+        }
+        var parent = node.getParent();
+        var holder = new TreeNode();
+        holder.setNodeK(parent.getNodeK());
+        holder.setKind(parent.getKind());
+        holder.setDept(parent.getDept());
+        var parser = Parser.of(tokens, from);
+        TreeNode ret;
+        try {
+            switch (node.getNodeK()) {
+                case ProcDecK:
+                    ret = TreeNode.ofParent(holder, NodeKind.ProcDecK);
+                    parser.ProcDeclaration(ret);
+                    break;
+                case StmLK:
+                    ret = TreeNode.ofParent(holder, NodeKind.StmLK);
+                    ret.setTokenFrom(from);
+                    parser.StmList(ret);
+                    ret.setTokenTo(parser.position());
+                    break;
+                case StmtK:
+                    parser.Stm(holder);
+                    if (holder.getChild().isEmpty()) {
+                        return null;
+                    }
+                    ret = holder.getChild().get(0);
+                    break;
+                default:
+                    return null;
+            }
+        } catch (TokenNotMatchException e) {
+            return null;
+        }
+        if (parser.position() != to) {
+            return null;
+        }
+        ret.setParent(parent);
+        ret.updateChildDept();
+        var siblings = parent.getChild();
+        for (int i = 0; i < siblings.size(); i++) {
+            if (siblings.get(i) == node) {
+                siblings.set(i, ret);
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * move spans of nodes after the edit, and extend the ones enclosing the reparsed node
+     */
+    private static void shift(TreeNode root, int end, int delta, TreeNode reparsed) {
+        if (delta == 0) {
+            return;
+        }
+        var ancestors = new ArrayList<TreeNode>();
+        for (var node = reparsed.getParent(); node != null; node = node.getParent()) {
+            ancestors.add(node);
+            if (node.getTokenFrom() >= 0) {
+                node.setTokenTo(node.getTokenTo() + delta);
+            }
+        }
+        var stack = new ArrayDeque<TreeNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            if (node == reparsed || node.getNodeK() == NodeKind.ExpK) {
+                continue;
+            }
+            if (node.getTokenFrom() >= 0 && !contains(ancestors, node)) {
+                if (node.getTokenFrom() < end) {
+                    // before the edit
+                    continue;
+                }
+                node.setTokenFrom(node.getTokenFrom() + delta);
+                node.setTokenTo(node.getTokenTo() + delta);
+            }
+            for (var child : node.getChild()) {
+                stack.push(child);
+            }
+        }
+    }
+
+    private static boolean contains(List<TreeNode> nodes, TreeNode node) {
+        for (var item : nodes) {
+            if (item == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,19 +1,22 @@
 package net.kaaass.snlc.parser;
 
 import lombok.AccessLevel;
-import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
 import net.kaaass.snlc.ast.ExpType;
 import net.kaaass.snlc.ast.Kind;
 import net.kaaass.snlc.ast.NodeKind;
 import net.kaaass.snlc.ast.TreeNode;
 import net.kaaass.snlc.ast.attr.*;
+import net.kaaass.snlc.lexer.TokenBuffer;
 import net.kaaass.snlc.lexer.TokenResult;
+import net.kaaass.snlc.lexer.engine.ILexEngine;
+import net.kaaass.snlc.lexer.exception.LexParseException;
 import net.kaaass.snlc.lexer.snl.SnlLexeme;
 import net.kaaass.snlc.parser.exception.TokenNotMatchException;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Parser for SNL
@@ -25,13 +28,79 @@ public class Parser {
 
     private final Tokens tokens;
 
+    /*
+     * predict sets of the productions, as bitmasks of token ordinals
+     */
+    private static final long AFTER_TYPE_DEC = mask(SnlLexeme.VAR, SnlLexeme.PROCEDURE, SnlLexeme.BEGIN);
+    private static final long BASE_TYPE = mask(SnlLexeme.INTEGER, SnlLexeme.CHAR);
+    private static final long STRUCTURE_TYPE = mask(SnlLexeme.ARRAY, SnlLexeme.RECORD);
+    private static final long FIELD_DEC = mask(SnlLexeme.INTEGER, SnlLexeme.CHAR, SnlLexeme.ARRAY);
+    private static final long AFTER_VAR_DEC = mask(SnlLexeme.PROCEDURE, SnlLexeme.BEGIN);
+    private static final long TYPE_DEF = mask(SnlLexeme.INTEGER, SnlLexeme.CHAR, SnlLexeme.ARRAY, SnlLexeme.RECORD, SnlLexeme.ID);
+    private static final long PARAM = mask(SnlLexeme.INTEGER, SnlLexeme.CHAR, SnlLexeme.ARRAY, SnlLexeme.RECORD, SnlLexeme.ID, SnlLexeme.VAR);
+    private static final long AFTER_FORM_LIST = mask(SnlLexeme.SEMI, SnlLexeme.RPAREN);
+    private static final long AFTER_STM_LIST = mask(SnlLexeme.ELSE, SnlLexeme.FI, SnlLexeme.END, SnlLexeme.ENDWH);
+    private static final long ASSIGNMENT_REST = mask(SnlLexeme.ASSIGN, SnlLexeme.DOT, SnlLexeme.LMIDPAREN);
+    private static final long EXP = mask(SnlLexeme.LPAREN, SnlLexeme.INTC, SnlLexeme.CHARC, SnlLexeme.ID);
+    private static final long AFTER_EXP = mask(SnlLexeme.LT, SnlLexeme.EQ, SnlLexeme.RMIDPAREN, SnlLexeme.THEN, SnlLexeme.ELSE, SnlLexeme.FI, SnlLexeme.DO, SnlLexeme.ENDWH, SnlLexeme.RPAREN, SnlLexeme.END, SnlLexeme.SEMI, SnlLexeme.COMMA);
+    private static final long ADD_OP = mask(SnlLexeme.PLUS, SnlLexeme.MINUS);
+    private static final long AFTER_TERM = mask(SnlLexeme.PLUS, SnlLexeme.MINUS, SnlLexeme.LT, SnlLexeme.EQ, SnlLexeme.RMIDPAREN, SnlLexeme.THEN, SnlLexeme.ELSE, SnlLexeme.FI, SnlLexeme.DO, SnlLexeme.ENDWH, SnlLexeme.RPAREN, SnlLexeme.END, SnlLexeme.SEMI, SnlLexeme.COMMA);
+    private static final long MULT_OP = mask(SnlLexeme.TIMES, SnlLexeme.OVER);
+    private static final long AFTER_VARIABLE = mask(SnlLexeme.RMIDPAREN, SnlLexeme.ASSIGN, SnlLexeme.TIMES, SnlLexeme.OVER, SnlLexeme.PLUS, SnlLexeme.MINUS, SnlLexeme.LT, SnlLexeme.EQ, SnlLexeme.THEN, SnlLexeme.ELSE, SnlLexeme.FI, SnlLexeme.DO, SnlLexeme.ENDWH, SnlLexeme.RPAREN, SnlLexeme.END, SnlLexeme.SEMI, SnlLexeme.COMMA);
+    private static final long AFTER_FIELD_VAR = mask(SnlLexeme.RMIDPAREN, SnlLexeme.ASSIGN, SnlLexeme.TIMES, SnlLexeme.OVER, SnlLexeme.PLUS, SnlLexeme.MINUS, SnlLexeme.LT, SnlLexeme.EQ, SnlLexeme.THEN, SnlLexeme.ELSE, SnlLexeme.FI, SnlLexeme.DO, SnlLexeme.ENDWH, SnlLexeme.RPAREN, SnlLexeme.END, SnlLexeme.SEMI, SnlLexeme.COMMA);
+
+    private static long mask(SnlLexeme... types) {
+        long ret = 0;
+        for (var type : types) {
+            ret |= 1L << type.ordinal();
+        }
+        return ret;
+    }
+
     public static Parser of(List<TokenResult<SnlLexeme>> tokenList) {
-        return new Parser(new Tokens(tokenList));
+        return new Parser(new ListTokens(tokenList));
+    }
+
+    /**
+     * parser starting at the given token, for reparsing a part of the token list
+     */
+    static Parser of(List<TokenResult<SnlLexeme>> tokenList, int from) {
+        var ret = of(tokenList);
+        ret.tokens.pos = from;
+        return ret;
+    }
+
+    /**
+     * index of the current token
+     */
+    int position() {
+        return tokens.pos;
+    }
+
+    public static Parser of(TokenBuffer<SnlLexeme> tokenBuffer) {
+        return new Parser(new BufferTokens(tokenBuffer));
+    }
+
+    /**
+     * parse while lexing, tokens are pulled from the engine on demand
+     */
+    public static Parser of(ILexEngine<SnlLexeme> engine) {
+        return new Parser(new StreamTokens(engine));
+    }
+
+    /**
+     * parser over a custom token cursor, used by benchmarks to compare ways of checking predict sets
+     */
+    static Parser of(Tokens tokens) {
+        return new Parser(tokens);
     }
 
-    public TreeNode getAst() throws TokenNotMatchException {
+    /**
+     * @throws LexParseException if tokens are pulled from an engine and lexing fails
+     */
+    public TreeNode getAst() throws TokenNotMatchException, LexParseException {
         var root = Program();
-        if (tokens.pos == tokens.tokenList.size())
+        if (tokens.isEnd())
             return root;
         else {
             throw new TokenNotMatchException();
@@ -46,6 +115,8 @@ public class Parser {
         DeclarePart(root);
         ProgramBody(root);
         tokens.match(SnlLexeme.DOT);
+        // expressions are built before they are linked, so depth is set once the tree is done
+        root.updateChildDept();
         return root;
     }
 
@@ -59,7 +130,7 @@ public class Parser {
     public void ProgramName(TreeNode parent) throws TokenNotMatchException {
         var name = tokens.match(SnlLexeme.ID);
 
-        parent.getName().add(name.getToken());
+        parent.addName(tokens.text(name), tokens.symbol(name));
     }
 
     public void DeclarePart(TreeNode parent) throws TokenNotMatchException {
@@ -69,9 +140,9 @@ public class Parser {
     }
 
     public void TypeDecpart(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.VAR || tokens.current() == SnlLexeme.PROCEDURE || tokens.current() == SnlLexeme.BEGIN) {
+        if (tokens.in(AFTER_TYPE_DEC)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.TYPE) {
+        } else if (tokens.is(SnlLexeme.TYPE)) {
             var cur = TreeNode.ofParent(parent, NodeKind.TypeK);
 
             TypeDec(cur);
@@ -96,9 +167,9 @@ public class Parser {
     }
 
     public void TypeDecMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.VAR || tokens.current() == SnlLexeme.PROCEDURE || tokens.current() == SnlLexeme.BEGIN) {
+        if (tokens.in(AFTER_TYPE_DEC)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.ID) {
+        } else if (tokens.is(SnlLexeme.ID)) {
             var cur = TreeNode.ofParent(parent, NodeKind.DecK);
 
             TypeDecList(cur);
@@ -109,19 +180,19 @@ public class Parser {
 
     public void TypeId(TreeNode parent) throws TokenNotMatchException {
         var typeid = tokens.match(SnlLexeme.ID);
-        parent.getName().add(typeid.getToken());
+        parent.addName(tokens.text(typeid), tokens.symbol(typeid));
     }
 
     public void TypeDef(TreeNode parent, boolean proc) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.INTEGER || tokens.current() == SnlLexeme.CHAR) {
+        if (tokens.in(BASE_TYPE)) {
             parent.setKind(BaseType());
             if (proc)
                 parent.setAttr(new ProcAttr(Paramt.ValParamType));
-        } else if (tokens.current() == SnlLexeme.ARRAY || tokens.current() == SnlLexeme.RECORD) {
+        } else if (tokens.in(STRUCTURE_TYPE)) {
             if (proc)
                 parent.setAttr(new ProcAttr(Paramt.VarParamType));
             StructureType(parent);
-        } else if (tokens.current() == SnlLexeme.ID) {
+        } else if (tokens.is(SnlLexeme.ID)) {
             tokens.match(SnlLexeme.ID);
             parent.setKind(Kind.IdK);
             if (proc)
@@ -132,11 +203,11 @@ public class Parser {
     }
 
     public Kind BaseType() throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.INTEGER) {
+        if (tokens.is(SnlLexeme.INTEGER)) {
             tokens.match(SnlLexeme.INTEGER);
 
             return Kind.IntegerK;
-        } else if (tokens.current() == SnlLexeme.CHAR) {
+        } else if (tokens.is(SnlLexeme.CHAR)) {
             tokens.match(SnlLexeme.CHAR);
 
             return Kind.CharK;
@@ -146,9 +217,9 @@ public class Parser {
     }
 
     public void StructureType(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.ARRAY) {
+        if (tokens.is(SnlLexeme.ARRAY)) {
             ArrayType(parent);
-        } else if (tokens.current() == SnlLexeme.RECORD) {
+        } else if (tokens.is(SnlLexeme.RECORD)) {
             RecType(parent);
         } else {
             throw new TokenNotMatchException();
@@ -161,8 +232,11 @@ public class Parser {
         parent.setKind(Kind.ArrayK);
         var attr = new ArrayAttr();
         parent.setAttr(attr);
+        tokens.match(SnlLexeme.LMIDPAREN);
         var low = Low();
+        tokens.match(SnlLexeme.UNDERANGE);
         var top = Top();
+        tokens.match(SnlLexeme.RMIDPAREN);
         tokens.match(SnlLexeme.OF);
         attr.setLow(low);
         attr.setTop(top);
@@ -171,12 +245,12 @@ public class Parser {
 
     public Integer Low() throws TokenNotMatchException {
         var low = tokens.match(SnlLexeme.INTC);
-        return Integer.valueOf(low.getToken());
+        return Integer.valueOf(tokens.text(low));
     }
 
     public Integer Top() throws TokenNotMatchException {
         var top = tokens.match(SnlLexeme.INTC);
-        return Integer.valueOf(top.getToken());
+        return Integer.valueOf(tokens.text(top));
     }
 
     public void RecType(TreeNode parent) throws TokenNotMatchException {
@@ -189,12 +263,12 @@ public class Parser {
     public void FieldDecList(TreeNode parent) throws TokenNotMatchException {
         var cur = TreeNode.ofParent(parent, NodeKind.DecK);
 
-        if (tokens.current() == SnlLexeme.INTEGER || tokens.current() == SnlLexeme.CHAR) {
+        if (tokens.in(BASE_TYPE)) {
             cur.setKind(BaseType());
             IdList(cur);
             tokens.match(SnlLexeme.SEMI);
             FieldDecMore(cur);
-        } else if (tokens.current() == SnlLexeme.ARRAY) {
+        } else if (tokens.is(SnlLexeme.ARRAY)) {
             ArrayType(cur);
             IdList(cur);
             tokens.match(SnlLexeme.SEMI);
@@ -205,9 +279,9 @@ public class Parser {
     }
 
     public void FieldDecMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.END) {
+        if (tokens.is(SnlLexeme.END)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.INTEGER || tokens.current() == SnlLexeme.CHAR || tokens.current() == SnlLexeme.ARRAY) {
+        } else if (tokens.in(FIELD_DEC)) {
             FieldDecList(parent.getParent());
         } else {
             throw new TokenNotMatchException();
@@ -216,14 +290,14 @@ public class Parser {
 
     public void IdList(TreeNode parent) throws TokenNotMatchException {
         var name = tokens.match(SnlLexeme.ID);
-        parent.getName().add(name.getToken());
+        parent.addName(tokens.text(name), tokens.symbol(name));
         IdMore(parent);
     }
 
     public void IdMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.SEMI) {
+        if (tokens.is(SnlLexeme.SEMI)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.COMMA) {
+        } else if (tokens.is(SnlLexeme.COMMA)) {
             tokens.match(SnlLexeme.COMMA);
             IdList(parent);
         } else {
@@ -232,9 +306,9 @@ public class Parser {
     }
 
     public void VarDecpart(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.PROCEDURE || tokens.current() == SnlLexeme.BEGIN) {
+        if (tokens.in(AFTER_VAR_DEC)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.VAR) {
+        } else if (tokens.is(SnlLexeme.VAR)) {
             var cur = TreeNode.ofParent(parent, NodeKind.VarK);
 
             VarDec(cur);
@@ -258,10 +332,12 @@ public class Parser {
     }
 
     public void VarDecMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.PROCEDURE || tokens.current() == SnlLexeme.BEGIN) {
+        if (tokens.in(AFTER_VAR_DEC)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.INTEGER || tokens.current() == SnlLexeme.CHAR || tokens.current() == SnlLexeme.ARRAY || tokens.current() == SnlLexeme.RECORD || tokens.current() == SnlLexeme.ID) {
-            VarDecList(parent.getParent());
+        } else if (tokens.in(TYPE_DEF)) {
+            var cur = TreeNode.ofParent(parent.getParent(), NodeKind.DecK);
+
+            VarDecList(cur);
         } else {
             throw new TokenNotMatchException();
         }
@@ -269,14 +345,14 @@ public class Parser {
 
     public void VarIdList(TreeNode parent) throws TokenNotMatchException {
         var token = tokens.match(SnlLexeme.ID);
-        parent.getName().add(token.getToken());
+        parent.addName(tokens.text(token), tokens.symbol(token));
         VarIdMore(parent);
     }
 
     public void VarIdMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.SEMI) {
+        if (tokens.is(SnlLexeme.SEMI)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.COMMA) {
+        } else if (tokens.is(SnlLexeme.COMMA)) {
             tokens.match(SnlLexeme.COMMA);
             VarIdList(parent);
         } else {
@@ -285,9 +361,9 @@ public class Parser {
     }
 
     public void ProcDecpart(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.BEGIN) {
+        if (tokens.is(SnlLexeme.BEGIN)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.PROCEDURE) {
+        } else if (tokens.is(SnlLexeme.PROCEDURE)) {
             var cur = TreeNode.ofParent(parent, NodeKind.ProcDecK);
 
             ProcDec(cur);
@@ -297,6 +373,15 @@ public class Parser {
     }
 
     public void ProcDec(TreeNode parent) throws TokenNotMatchException {
+        ProcDeclaration(parent);
+        ProcDecMore(parent);
+    }
+
+    /**
+     * a single procedure declaration, without the ones following it
+     */
+    public void ProcDeclaration(TreeNode parent) throws TokenNotMatchException {
+        parent.setTokenFrom(tokens.pos);
         tokens.match(SnlLexeme.PROCEDURE);
         ProcName(parent);
         tokens.match(SnlLexeme.LPAREN);
@@ -305,13 +390,13 @@ public class Parser {
         tokens.match(SnlLexeme.SEMI);
         ProcDecPart(parent);
         ProcBody(parent);
-        ProcDecMore(parent);
+        parent.setTokenTo(tokens.pos);
     }
 
     public void ProcDecMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.BEGIN) {
+        if (tokens.is(SnlLexeme.BEGIN)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.PROCEDURE) {
+        } else if (tokens.is(SnlLexeme.PROCEDURE)) {
             var cur = TreeNode.ofParent(parent.getParent(), NodeKind.ProcDecK);
             ProcDec(cur);
         } else {
@@ -321,13 +406,13 @@ public class Parser {
 
     public void ProcName(TreeNode parent) throws TokenNotMatchException {
         var name = tokens.match(SnlLexeme.ID);
-        parent.getName().add(name.getToken());
+        parent.addName(tokens.text(name), tokens.symbol(name));
     }
 
     public void ParamList(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.RPAREN) {
+        if (tokens.is(SnlLexeme.RPAREN)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.INTEGER || tokens.current() == SnlLexeme.CHAR || tokens.current() == SnlLexeme.ARRAY || tokens.current() == SnlLexeme.RECORD || tokens.current() == SnlLexeme.ID || tokens.current() == SnlLexeme.VAR) {
+        } else if (tokens.in(PARAM)) {
             ParamDecList(parent);
         } else {
             throw new TokenNotMatchException();
@@ -340,9 +425,9 @@ public class Parser {
     }
 
     public void ParamMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.RPAREN) {
+        if (tokens.is(SnlLexeme.RPAREN)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.SEMI) {
+        } else if (tokens.is(SnlLexeme.SEMI)) {
             tokens.match(SnlLexeme.SEMI);
             ParamDecList(parent);
         } else {
@@ -352,11 +437,11 @@ public class Parser {
 
     public void Param(TreeNode parent) throws TokenNotMatchException {
 
-        if (tokens.current() == SnlLexeme.INTEGER || tokens.current() == SnlLexeme.CHAR || tokens.current() == SnlLexeme.ARRAY || tokens.current() == SnlLexeme.RECORD || tokens.current() == SnlLexeme.ID ) {
+        if (tokens.in(TYPE_DEF)) {
             var cur = TreeNode.ofParent(parent, NodeKind.DecK);
             TypeDef(cur, true);
             FormList(cur);
-        } else if (tokens.current() == SnlLexeme.VAR) {
+        } else if (tokens.is(SnlLexeme.VAR)) {
             var cur = TreeNode.ofParent(parent, NodeKind.VarK);
             tokens.match(SnlLexeme.VAR);
             TypeDef(cur, true);
@@ -368,14 +453,14 @@ public class Parser {
 
     public void FormList(TreeNode parent) throws TokenNotMatchException {
         var name = tokens.match(SnlLexeme.ID);
-        parent.getName().add(name.getToken());
+        parent.addName(tokens.text(name), tokens.symbol(name));
         FidMore(parent);
     }
 
     public void FidMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.SEMI || tokens.current() == SnlLexeme.RPAREN) {
+        if (tokens.in(AFTER_FORM_LIST)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.COMMA) {
+        } else if (tokens.is(SnlLexeme.COMMA)) {
             tokens.match(SnlLexeme.COMMA);
             FormList(parent);
         } else {
@@ -394,7 +479,9 @@ public class Parser {
     public void ProgramBody(TreeNode parent) throws TokenNotMatchException {
         tokens.match(SnlLexeme.BEGIN);
         var cur = TreeNode.ofParent(parent, NodeKind.StmLK);
+        cur.setTokenFrom(tokens.pos);
         StmList(cur);
+        cur.setTokenTo(tokens.pos);
         tokens.match(SnlLexeme.END);
     }
 
@@ -404,9 +491,9 @@ public class Parser {
     }
 
     public void StmMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.ELSE || tokens.current() == SnlLexeme.FI || tokens.current() == SnlLexeme.END || tokens.current() == SnlLexeme.ENDWH) {
+        if (tokens.in(AFTER_STM_LIST)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.SEMI) {
+        } else if (tokens.is(SnlLexeme.SEMI)) {
             tokens.match(SnlLexeme.SEMI);
             StmList(parent);
         } else {
@@ -416,37 +503,43 @@ public class Parser {
 
     public void Stm(TreeNode parent) throws TokenNotMatchException {
         var cur = TreeNode.ofParent(parent, NodeKind.StmtK);
-        if (tokens.current() == SnlLexeme.IF) {
+        cur.setTokenFrom(tokens.pos);
+        Statement(cur);
+        cur.setTokenTo(tokens.pos);
+    }
+
+    private void Statement(TreeNode cur) throws TokenNotMatchException {
+        if (tokens.is(SnlLexeme.IF)) {
             ConditionalStm(cur);
-        } else if (tokens.current() == SnlLexeme.WHILE) {
+        } else if (tokens.is(SnlLexeme.WHILE)) {
             LoopStm(cur);
-        } else if (tokens.current() == SnlLexeme.READ) {
+        } else if (tokens.is(SnlLexeme.READ)) {
             InputStm(cur);
-        } else if (tokens.current() == SnlLexeme.WRITE) {
+        } else if (tokens.is(SnlLexeme.WRITE)) {
             OutputStm(cur);
-        } else if (tokens.current() == SnlLexeme.RETURN) {
+        } else if (tokens.is(SnlLexeme.RETURN)) {
             ReturnStm(cur);
-        } else if (tokens.current() == SnlLexeme.ID) {
+        } else if (tokens.is(SnlLexeme.ID)) {
             var name = tokens.match(SnlLexeme.ID);
-            AssCall(name.getToken(), cur);
+            AssCall(tokens.text(name), tokens.symbol(name), cur);
         } else {
             throw new TokenNotMatchException();
         }
     }
 
-    public void AssCall(String name, TreeNode parent) throws TokenNotMatchException {
+    public void AssCall(String name, int symbol, TreeNode parent) throws TokenNotMatchException {
         var expAttr = new ExprAttr(SnlLexeme.ASSIGN, null, ExpType.Void);
         parent.setAttr(expAttr);
 
         var exp1 = TreeNode.ofParent(parent, NodeKind.ExpK);
         exp1.setAttr(new ExprAttr(SnlLexeme.ID, VarKind.IdV, ExpType.Integer));
-        exp1.getName().add(name);
+        exp1.addName(name, symbol);
 
-        if (tokens.current() == SnlLexeme.ASSIGN || tokens.current() == SnlLexeme.DOT || tokens.current() == SnlLexeme.LMIDPAREN) {
+        if (tokens.in(ASSIGNMENT_REST)) {
             parent.setKind(Kind.AssignK);
             var exp2 = AssignmentRest(exp1);
             parent.addChild(exp2);
-        } else if (tokens.current() == SnlLexeme.LPAREN) {
+        } else if (tokens.is(SnlLexeme.LPAREN)) {
             parent.setKind(Kind.CallK);
             CallStmRest(parent);
         } else {
@@ -491,7 +584,7 @@ public class Parser {
 
     public void Invar(TreeNode parent) throws TokenNotMatchException {
         var name = tokens.match(SnlLexeme.ID);
-        parent.getName().add(name.getToken());
+        parent.addName(tokens.text(name), tokens.symbol(name));
     }
 
     public void OutputStm(TreeNode parent) throws TokenNotMatchException {
@@ -516,9 +609,9 @@ public class Parser {
     }
 
     public void ActParamList(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.RPAREN) {
+        if (tokens.is(SnlLexeme.RPAREN)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.LPAREN || tokens.current() == SnlLexeme.INTC || tokens.current() == SnlLexeme.ID) {
+        } else if (tokens.in(EXP)) {
             var exp = Exp();
             exp.setNodeK(NodeKind.ExpK);
             parent.addChild(exp);
@@ -529,9 +622,9 @@ public class Parser {
     }
 
     public void ActParamMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.RPAREN) {
+        if (tokens.is(SnlLexeme.RPAREN)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.COMMA) {
+        } else if (tokens.is(SnlLexeme.COMMA)) {
             tokens.match(SnlLexeme.COMMA);
             ActParamList(parent);
         } else {
@@ -542,14 +635,14 @@ public class Parser {
     public void RelExp(TreeNode parent) throws TokenNotMatchException {
         var exp1 = Exp();
         exp1.setNodeK(NodeKind.ExpK);
-        var exp2 = OtherRelE();
-        exp2.getChild().add(0, exp1);
+        var exp2 = OtherRelE(exp1);
 
         parent.addChild(exp2);
     }
 
-    public TreeNode OtherRelE() throws TokenNotMatchException {
+    public TreeNode OtherRelE(TreeNode exp1) throws TokenNotMatchException {
         var cmpNode = CmpOp();
+        cmpNode.addChild(exp1);
 
         var exp2 = Exp();
         cmpNode.addChild(exp2);
@@ -557,85 +650,92 @@ public class Parser {
         return cmpNode;
     }
 
+    /**
+     * Exp ::= Term OtherTerm and OtherTerm ::= AddOp Exp are read in a loop,
+     * the operator chain is linked right-leaning afterwards
+     */
     public TreeNode Exp() throws TokenNotMatchException {
-        var exp1 = Term();
-        var exp2 = OtherTerm();
-
-        if (exp2.isEmpty()) {
-            return exp1;
-        } else {
-            var ret = exp2.get();
-            ret.getChild().add(0, exp1);
-
-            return ret;
-        }
-    }
-
-    public Optional<TreeNode> OtherTerm() throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.LT || tokens.current() == SnlLexeme.EQ || tokens.current() == SnlLexeme.RMIDPAREN || tokens.current() == SnlLexeme.THEN || tokens.current() == SnlLexeme.ELSE || tokens.current() == SnlLexeme.FI || tokens.current() == SnlLexeme.DO || tokens.current() == SnlLexeme.ENDWH || tokens.current() == SnlLexeme.RPAREN || tokens.current() == SnlLexeme.END || tokens.current() == SnlLexeme.SEMI || tokens.current() == SnlLexeme.COMMA) {
-            return Optional.empty();
-        } else if (tokens.current() == SnlLexeme.PLUS || tokens.current() == SnlLexeme.MINUS) {
-
+        var operands = new ArrayList<TreeNode>();
+        var operators = new ArrayList<TreeNode>();
+        operands.add(Term());
+        while (OtherTerm(operators)) {
+            operands.add(Term());
+        }
+        return chain(operands, operators);
+    }
+
+    /**
+     * @return whether an operator is read, and a term follows
+     */
+    public boolean OtherTerm(List<TreeNode> operators) throws TokenNotMatchException {
+        if (tokens.in(AFTER_EXP)) {
+            return false;
+        } else if (tokens.in(ADD_OP)) {
             var exp = new TreeNode();
             exp.setNodeK(NodeKind.ExpK);
-
             AddOp(exp);
-
-            var exp2 = Exp();
-            exp.addChild(exp2);
-
-            return Optional.of(exp);
+            operators.add(exp);
+            return true;
         } else {
             throw new TokenNotMatchException();
         }
     }
 
     public TreeNode Term() throws TokenNotMatchException {
-        var exp1 = Factor();
-        var exp2 = OtherFactor();
-
-        if (exp2.isEmpty()) {
-            return exp1;
-        } else {
-            var ret = exp2.get();
-            ret.getChild().add(0, exp1);
-            return ret;
+        var operands = new ArrayList<TreeNode>();
+        var operators = new ArrayList<TreeNode>();
+        operands.add(Factor());
+        while (OtherFactor(operators)) {
+            operands.add(Factor());
         }
+        return chain(operands, operators);
     }
 
-    public Optional<TreeNode> OtherFactor() throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.PLUS || tokens.current() == SnlLexeme.MINUS || tokens.current() == SnlLexeme.LT || tokens.current() == SnlLexeme.EQ || tokens.current() == SnlLexeme.RMIDPAREN || tokens.current() == SnlLexeme.THEN || tokens.current() == SnlLexeme.ELSE || tokens.current() == SnlLexeme.FI || tokens.current() == SnlLexeme.DO || tokens.current() == SnlLexeme.ENDWH || tokens.current() == SnlLexeme.RPAREN || tokens.current() == SnlLexeme.END || tokens.current() == SnlLexeme.SEMI || tokens.current() == SnlLexeme.COMMA) {
-            return Optional.empty();
-        } else if (tokens.current() == SnlLexeme.TIMES || tokens.current() == SnlLexeme.OVER) {
+    public boolean OtherFactor(List<TreeNode> operators) throws TokenNotMatchException {
+        if (tokens.in(AFTER_TERM)) {
+            return false;
+        } else if (tokens.in(MULT_OP)) {
             var exp = new TreeNode();
             exp.setNodeK(NodeKind.ExpK);
             MultOp(exp);
-            var exp2 = Term();
-
-            exp.addChild(exp2);
-            return Optional.of(exp);
+            operators.add(exp);
+            return true;
         } else {
             throw new TokenNotMatchException();
         }
     }
 
+    /**
+     * a op1 b op2 c is linked as op1(a, op2(b, c)), from the last operator backwards
+     */
+    private static TreeNode chain(List<TreeNode> operands, List<TreeNode> operators) {
+        var ret = operands.get(operands.size() - 1);
+        for (int i = operators.size() - 1; i >= 0; i--) {
+            var exp = operators.get(i);
+            exp.addChild(operands.get(i));
+            exp.addChild(ret);
+            ret = exp;
+        }
+        return ret;
+    }
+
     public TreeNode Factor() throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.LPAREN) {
+        if (tokens.is(SnlLexeme.LPAREN)) {
             tokens.match(SnlLexeme.LPAREN);
             var exp = Exp();
             tokens.match(SnlLexeme.RPAREN);
 
             return exp;
-        } else if (tokens.current() == SnlLexeme.INTC) {
-            var val = tokens.match(SnlLexeme.INTC);
+        } else if (tokens.is(SnlLexeme.INTC) || tokens.is(SnlLexeme.CHARC)) {
+            var val = tokens.match(tokens.current());
 
             var exp = new TreeNode();
             exp.setNodeK(NodeKind.ExpK);
             exp.setKind(Kind.ConstK);
-            exp.getName().add(val.getToken());
+            exp.addName(tokens.text(val), tokens.symbol(val));
 
             return exp;
-        } else if (tokens.current() == SnlLexeme.ID) {
+        } else if (tokens.is(SnlLexeme.ID)) {
             var exp = new TreeNode();
             exp.setNodeK(NodeKind.ExpK);
             exp.setAttr(new ExprAttr(SnlLexeme.ID, VarKind.IdV, ExpType.Integer));
@@ -649,20 +749,20 @@ public class Parser {
     public void Variable(TreeNode exp) throws TokenNotMatchException {
         var name = tokens.match(SnlLexeme.ID);
         exp.setKind(Kind.IdEK);
-        exp.getName().add(name.getToken());
+        exp.addName(tokens.text(name), tokens.symbol(name));
         VariMore(exp);
     }
 
     public void VariMore(TreeNode exp) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.RMIDPAREN || tokens.current() == SnlLexeme.ASSIGN || tokens.current() == SnlLexeme.TIMES || tokens.current() == SnlLexeme.OVER || tokens.current() == SnlLexeme.PLUS || tokens.current() == SnlLexeme.MINUS || tokens.current() == SnlLexeme.LT || tokens.current() == SnlLexeme.EQ || tokens.current() == SnlLexeme.THEN || tokens.current() == SnlLexeme.ELSE || tokens.current() == SnlLexeme.FI || tokens.current() == SnlLexeme.DO || tokens.current() == SnlLexeme.ENDWH || tokens.current() == SnlLexeme.RPAREN || tokens.current() == SnlLexeme.END || tokens.current() == SnlLexeme.SEMI || tokens.current() == SnlLexeme.COMMA) {
+        if (tokens.in(AFTER_VARIABLE)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.LMIDPAREN) {
+        } else if (tokens.is(SnlLexeme.LMIDPAREN)) {
             tokens.match(SnlLexeme.LMIDPAREN);
             var arrayMem = Exp();
             arrayMem.setNodeK(NodeKind.ExpK);
             arrayMem.setAttr(new ExprAttr(SnlLexeme.ARRAY, VarKind.ArrayMembV, ExpType.Void));
             tokens.match(SnlLexeme.RMIDPAREN);
-        } else if (tokens.current() == SnlLexeme.DOT) {
+        } else if (tokens.is(SnlLexeme.DOT)) {
             var field = TreeNode.ofParent(exp, NodeKind.ExpK);
             field.setAttr(new ExprAttr(SnlLexeme.RECORD, VarKind.FiledMembV, ExpType.Void));
             tokens.match(SnlLexeme.DOT);
@@ -674,14 +774,14 @@ public class Parser {
 
     public void FieldVar(TreeNode parent) throws TokenNotMatchException {
         var name = tokens.match(SnlLexeme.ID);
-        parent.getName().add(name.getToken());
+        parent.addName(tokens.text(name), tokens.symbol(name));
         FieldVarMore(parent);
     }
 
     public void FieldVarMore(TreeNode parent) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.ASSIGN || tokens.current() == SnlLexeme.TIMES || tokens.current() == SnlLexeme.OVER || tokens.current() == SnlLexeme.PLUS || tokens.current() == SnlLexeme.MINUS || tokens.current() == SnlLexeme.LT || tokens.current() == SnlLexeme.EQ || tokens.current() == SnlLexeme.THEN || tokens.current() == SnlLexeme.ELSE || tokens.current() == SnlLexeme.FI || tokens.current() == SnlLexeme.DO || tokens.current() == SnlLexeme.ENDWH || tokens.current() == SnlLexeme.RPAREN || tokens.current() == SnlLexeme.END || tokens.current() == SnlLexeme.SEMI || tokens.current() == SnlLexeme.COMMA) {
+        if (tokens.in(AFTER_FIELD_VAR)) {
             // pass
-        } else if (tokens.current() == SnlLexeme.LMIDPAREN) {
+        } else if (tokens.is(SnlLexeme.LMIDPAREN)) {
             tokens.match(SnlLexeme.LMIDPAREN);
             var arrayMem = Exp();
             parent.addChild(arrayMem);
@@ -696,11 +796,11 @@ public class Parser {
         var cmpNode = new TreeNode();
         cmpNode.setNodeK(NodeKind.ExpK);
         cmpNode.setKind(Kind.OpK);
-        if (tokens.current() == SnlLexeme.LT) {
+        if (tokens.is(SnlLexeme.LT)) {
             tokens.match(SnlLexeme.LT);
             cmpNode.setAttr(new ExprAttr(SnlLexeme.LT, null, ExpType.Boolean));
             return cmpNode;
-        } else if (tokens.current() == SnlLexeme.EQ) {
+        } else if (tokens.is(SnlLexeme.EQ)) {
             tokens.match(SnlLexeme.EQ);
             cmpNode.setAttr(new ExprAttr(SnlLexeme.EQ, null, ExpType.Boolean));
             return cmpNode;
@@ -711,10 +811,10 @@ public class Parser {
 
     public void AddOp(TreeNode exp) throws TokenNotMatchException {
         exp.setKind(Kind.OpK);
-        if (tokens.current() == SnlLexeme.PLUS) {
+        if (tokens.is(SnlLexeme.PLUS)) {
             tokens.match(SnlLexeme.PLUS);
             exp.setAttr(new ExprAttr(SnlLexeme.PLUS, null, ExpType.Integer));
-        } else if (tokens.current() == SnlLexeme.MINUS) {
+        } else if (tokens.is(SnlLexeme.MINUS)) {
             tokens.match(SnlLexeme.MINUS);
             exp.setAttr(new ExprAttr(SnlLexeme.MINUS, null, ExpType.Integer));
         } else {
@@ -723,11 +823,11 @@ public class Parser {
     }
 
     public void MultOp(TreeNode exp) throws TokenNotMatchException {
-        if (tokens.current() == SnlLexeme.TIMES) {
+        if (tokens.is(SnlLexeme.TIMES)) {
             tokens.match(SnlLexeme.TIMES);
             exp.setKind(Kind.OpK);
             exp.setAttr(new ExprAttr(SnlLexeme.TIMES, null, ExpType.Integer));
-        } else if (tokens.current() == SnlLexeme.OVER) {
+        } else if (tokens.is(SnlLexeme.OVER)) {
             tokens.match(SnlLexeme.OVER);
             exp.setKind(Kind.OpK);
             exp.setAttr(new ExprAttr(SnlLexeme.OVER, null, ExpType.Integer));
@@ -736,29 +836,172 @@ public class Parser {
         }
     }
 
+    /**
+     * Token cursor
+     */
+    abstract static class Tokens {
+
+        protected int pos = 0;
+
+        private int kindPos = -1;
+        private int kind;
+
+        /**
+         * ordinal of current token type, -1 if all tokens are consumed. cached until the cursor moves
+         */
+        public int kind() {
+            if (kindPos != pos) {
+                var type = current();
+                kind = type == null ? -1 : type.ordinal();
+                kindPos = pos;
+            }
+            return kind;
+        }
+
+        public boolean is(SnlLexeme type) {
+            return kind() == type.ordinal();
+        }
+
+        /**
+         * whether current token is in the set
+         *
+         * @param set bitmask of token ordinals
+         */
+        public boolean in(long set) {
+            var kind = kind();
+            return kind >= 0 && (set >>> kind & 1) != 0;
+        }
+
+        /**
+         * type of current token, null if all tokens are consumed
+         */
+        public abstract SnlLexeme current();
+
+        public abstract String text(int index);
+
+        public abstract int symbol(int index);
+
+        public abstract boolean isEnd();
+
+        /**
+         * match current token and move forward
+         *
+         * @return index of the matched token
+         */
+        public int match(SnlLexeme type) throws TokenNotMatchException {
+            if (is(type)) {
+                return pos++;
+            } else {
+                throw new TokenNotMatchException();
+            }
+        }
+    }
+
     @RequiredArgsConstructor
-    @Data
-    static class Tokens {
+    static class ListTokens extends Tokens {
         private final List<TokenResult<SnlLexeme>> tokenList;
 
-        private int pos = 0;
+        @Override
+        public SnlLexeme current() {
+            return pos < tokenList.size() ? tokenList.get(pos).getDefinition().getType() : null;
+        }
+
+        @Override
+        public String text(int index) {
+            return tokenList.get(index).getToken();
+        }
 
-        public TokenResult<SnlLexeme> currentToken() {
-            return this.tokenList.get(pos);
+        @Override
+        public int symbol(int index) {
+            return tokenList.get(index).getSymbol();
         }
 
+        @Override
+        public boolean isEnd() {
+            return pos == tokenList.size();
+        }
+    }
+
+    @RequiredArgsConstructor
+    static class BufferTokens extends Tokens {
+        private final TokenBuffer<SnlLexeme> buffer;
+
+        @Override
         public SnlLexeme current() {
-            return currentToken().getDefinition().getType();
+            return pos < buffer.size() ? buffer.type(pos) : null;
         }
 
-        public TokenResult<SnlLexeme> match(SnlLexeme type) throws TokenNotMatchException {
-            if (current() == type) {
-                var token = currentToken();
-                pos += 1;
-                return token;
-            } else {
-                throw new TokenNotMatchException();
+        @Override
+        public String text(int index) {
+            return buffer.text(index);
+        }
+
+        @Override
+        public int symbol(int index) {
+            return buffer.symbol(index);
+        }
+
+        @Override
+        public boolean isEnd() {
+            return pos == buffer.size();
+        }
+    }
+
+    /**
+     * tokens read lazily from a lex engine. only a small window of tokens is kept,
+     * which is enough since the parser looks one token ahead and reads the text
+     * of a token right after matching it
+     */
+    static class StreamTokens extends Tokens {
+        private static final int WINDOW = 8;
+
+        private final ILexEngine<SnlLexeme> engine;
+        @SuppressWarnings("unchecked")
+        private final TokenResult<SnlLexeme>[] window = (TokenResult<SnlLexeme>[]) new TokenResult<?>[WINDOW];
+        /**
+         * count of tokens pulled from the engine
+         */
+        private int read = 0;
+        private boolean end = false;
+
+        StreamTokens(ILexEngine<SnlLexeme> engine) {
+            this.engine = engine;
+        }
+
+        @SneakyThrows
+        @Override
+        public SnlLexeme current() {
+            if (pos == read && !end) {
+                var token = engine.nextToken();
+                if (token == null) {
+                    end = true;
+                } else {
+                    window[read++ & (WINDOW - 1)] = token;
+                }
             }
+            return pos < read ? window[pos & (WINDOW - 1)].getDefinition().getType() : null;
+        }
+
+        private TokenResult<SnlLexeme> get(int index) {
+            if (index >= read || index < read - WINDOW) {
+                throw new IndexOutOfBoundsException("token " + index + " is out of window");
+            }
+            return window[index & (WINDOW - 1)];
+        }
+
+        @Override
+        public String text(int index) {
+            return get(index).getToken();
+        }
+
+        @Override
+        public int symbol(int index) {
+            return get(index).getSymbol();
+        }
+
+        @Override
+        public boolean isEnd() {
+            return current() == null;
         }
     }
 }
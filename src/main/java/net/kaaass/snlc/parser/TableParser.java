@@ -0,0 +1,408 @@
+package net.kaaass.snlc.parser;
+
+import net.kaaass.snlc.ast.ExpType;
+import net.kaaass.snlc.ast.Kind;
+import net.kaaass.snlc.ast.NodeKind;
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.ast.attr.*;
+import net.kaaass.snlc.lexer.TokenBuffer;
+import net.kaaass.snlc.lexer.TokenResult;
+import net.kaaass.snlc.lexer.engine.ILexEngine;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Table-driven LL(1) parser for SNL. Productions are predicted by the table of {@link Grammar},
+ * symbols are kept on an explicit stack and semantic actions build the same tree as {@link Parser}.
+ *
+ * @author Kevin Axel
+ */
+public class TableParser {
+
+    private static final Map<String, Action> ACTIONS = new HashMap<>();
+
+    private final Grammar grammar;
+    private final Action[] actions;
+    private final Parser.Tokens tokens;
+
+    TableParser(Grammar grammar, Parser.Tokens tokens) {
+        this.grammar = grammar;
+        this.tokens = tokens;
+        var productions = grammar.getProductions();
+        this.actions = new Action[productions.length];
+        for (int i = 0; i < productions.length; i++) {
+            this.actions[i] = ACTIONS.getOrDefault(productions[i], TableParser::pass);
+        }
+    }
+
+    public static TableParser of(List<TokenResult<SnlLexeme>> tokenList) {
+        return new TableParser(Grammar.snl(), new Parser.ListTokens(tokenList));
+    }
+
+    public static TableParser of(TokenBuffer<SnlLexeme> tokenBuffer) {
+        return new TableParser(Grammar.snl(), new Parser.BufferTokens(tokenBuffer));
+    }
+
+    public static TableParser of(ILexEngine<SnlLexeme> engine) {
+        return new TableParser(Grammar.snl(), new Parser.StreamTokens(engine));
+    }
+
+    /**
+     * @throws LexParseException if tokens are pulled from an engine and lexing fails
+     */
+    public TreeNode getAst() throws TokenNotMatchException, LexParseException {
+        var root = new TreeNode();
+        root.setNodeK(NodeKind.ProK);
+
+        var stack = new ArrayDeque<Frame>();
+        var start = new Frame(~grammar.nonTerminal("Program"));
+        start.node = root;
+        stack.push(start);
+        var right = grammar.getRight();
+        while (!stack.isEmpty()) {
+            var frame = stack.pop();
+            if (frame.symbol >= 0) {
+                var index = tokens.match(SnlLexeme.values()[frame.symbol]);
+                if (frame.match != null) {
+                    frame.match.accept(index);
+                }
+                continue;
+            }
+            var current = tokens.current();
+            var production = grammar.predict(~frame.symbol, current == null ? Grammar.END : current.ordinal());
+            if (production < 0) {
+                throw new TokenNotMatchException();
+            }
+            var symbols = right[production];
+            var rhs = new Frame[symbols.length];
+            for (int i = 0; i < symbols.length; i++) {
+                rhs[i] = new Frame(symbols[i]);
+            }
+            actions[production].expand(this, frame, rhs);
+            for (int i = rhs.length - 1; i >= 0; i--) {
+                stack.push(rhs[i]);
+            }
+        }
+        if (!tokens.isEnd()) {
+            throw new TokenNotMatchException();
+        }
+        root.updateChildDept();
+        return root;
+    }
+
+    /**
+     * a grammar symbol on the parse stack with its inherited attributes
+     */
+    static class Frame {
+        final int symbol;
+        /**
+         * node that the symbol builds into. for OtherTerm, OtherFactor and OtherRelE it is the left operand
+         */
+        TreeNode node;
+        /**
+         * whether TypeDef is the type of a parameter
+         */
+        boolean proc;
+        /**
+         * receives the expression built by Exp, Term and Factor
+         */
+        Consumer<TreeNode> out;
+        /**
+         * receives the kind matched by BaseType
+         */
+        Consumer<Kind> kind;
+        /**
+         * receives the value of Low and Top
+         */
+        IntConsumer value;
+        /**
+         * called with the token index when a terminal is matched
+         */
+        IntConsumer match;
+
+        Frame(int symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    @FunctionalInterface
+    interface Action {
+        void expand(TableParser parser, Frame lhs, Frame[] rhs);
+    }
+
+    private static void pass(TableParser parser, Frame lhs, Frame[] rhs) {
+        for (var frame : rhs) {
+            frame.node = lhs.node;
+            frame.proc = lhs.proc;
+            frame.out = lhs.out;
+            frame.kind = lhs.kind;
+            frame.value = lhs.value;
+        }
+    }
+
+    private static void action(String production, Action action) {
+        ACTIONS.put(production, action);
+    }
+
+    private static void passTo(Frame[] rhs, TreeNode node) {
+        for (var frame : rhs) {
+            frame.node = node;
+        }
+    }
+
+    private void addName(TreeNode node, int index) {
+        node.addName(tokens.text(index), tokens.symbol(index));
+    }
+
+    private static TreeNode expNode() {
+        var exp = new TreeNode();
+        exp.setNodeK(NodeKind.ExpK);
+        return exp;
+    }
+
+    static {
+        action("ProgramHead PROGRAM ProgramName", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.PheadK)));
+        action("ProgramName ID", (p, lhs, rhs) ->
+                rhs[0].match = i -> p.addName(lhs.node, i));
+
+        // declarations
+        action("TypeDecPart TypeDec", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.TypeK)));
+        action("TypeDec TYPE TypeDecList", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.DecK)));
+        action("TypeDecList TypeId = TypeDef ; TypeDecMore", (p, lhs, rhs) -> {
+            passTo(rhs, lhs.node);
+            rhs[4].node = lhs.node.getParent();
+        });
+        action("TypeDecMore TypeDecList", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.DecK)));
+        action("TypeId ID", (p, lhs, rhs) ->
+                rhs[0].match = i -> p.addName(lhs.node, i));
+        action("TypeDef BaseType", (p, lhs, rhs) -> rhs[0].kind = kind -> {
+            lhs.node.setKind(kind);
+            if (lhs.proc)
+                lhs.node.setAttr(new ProcAttr(Paramt.ValParamType));
+        });
+        action("TypeDef StructureType", (p, lhs, rhs) -> {
+            if (lhs.proc)
+                lhs.node.setAttr(new ProcAttr(Paramt.VarParamType));
+            passTo(rhs, lhs.node);
+        });
+        action("TypeDef ID", (p, lhs, rhs) -> rhs[0].match = i -> {
+            lhs.node.setKind(Kind.IdK);
+            if (lhs.proc)
+                lhs.node.setAttr(new ProcAttr(Paramt.VarParamType));
+        });
+        action("BaseType INTEGER", (p, lhs, rhs) -> lhs.kind.accept(Kind.IntegerK));
+        action("BaseType CHAR", (p, lhs, rhs) -> lhs.kind.accept(Kind.CharK));
+        action("ArrayType ARRAY [ Low .. Top ] OF BaseType", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.ArrayK);
+            var attr = new ArrayAttr();
+            lhs.node.setAttr(attr);
+            rhs[2].value = attr::setLow;
+            rhs[4].value = attr::setTop;
+            rhs[7].kind = attr::setChildType;
+        });
+        action("Low INTC", (p, lhs, rhs) ->
+                rhs[0].match = i -> lhs.value.accept(Integer.parseInt(p.tokens.text(i))));
+        action("Top INTC", (p, lhs, rhs) ->
+                rhs[0].match = i -> lhs.value.accept(Integer.parseInt(p.tokens.text(i))));
+        action("RecType RECORD FieldDecList END", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.RecordK);
+            passTo(rhs, lhs.node);
+        });
+        action("FieldDecList BaseType IdList ; FieldDecMore", (p, lhs, rhs) -> {
+            var cur = TreeNode.ofParent(lhs.node, NodeKind.DecK);
+            passTo(rhs, cur);
+            rhs[0].kind = cur::setKind;
+        });
+        action("FieldDecList ArrayType IdList ; FieldDecMore", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.DecK)));
+        action("FieldDecMore FieldDecList", (p, lhs, rhs) ->
+                passTo(rhs, lhs.node.getParent()));
+        action("IdList ID IdMore", (p, lhs, rhs) -> {
+            passTo(rhs, lhs.node);
+            rhs[0].match = i -> p.addName(lhs.node, i);
+        });
+        action("VarDecPart VarDec", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.VarK)));
+        action("VarDec VAR VarDecList", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.DecK)));
+        action("VarDecMore VarDecList", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node.getParent(), NodeKind.DecK)));
+        action("VarIdList ID VarIdMore", (p, lhs, rhs) -> {
+            passTo(rhs, lhs.node);
+            rhs[0].match = i -> p.addName(lhs.node, i);
+        });
+        action("ProcDecPart ProcDec", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.ProcDecK)));
+        action("ProcDecMore ProcDec", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node.getParent(), NodeKind.ProcDecK)));
+        action("ProcName ID", (p, lhs, rhs) ->
+                rhs[0].match = i -> p.addName(lhs.node, i));
+        action("Param TypeDef FormList", (p, lhs, rhs) -> {
+            passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.DecK));
+            rhs[0].proc = true;
+        });
+        action("Param VAR TypeDef FormList", (p, lhs, rhs) -> {
+            passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.VarK));
+            rhs[1].proc = true;
+        });
+        action("FormList ID FidMore", (p, lhs, rhs) -> {
+            passTo(rhs, lhs.node);
+            rhs[0].match = i -> p.addName(lhs.node, i);
+        });
+
+        // statements
+        action("ProgramBody BEGIN StmList END", (p, lhs, rhs) ->
+                passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.StmLK)));
+        action("Stm ConditionalStm", TableParser::statement);
+        action("Stm LoopStm", TableParser::statement);
+        action("Stm InputStm", TableParser::statement);
+        action("Stm OutputStm", TableParser::statement);
+        action("Stm ReturnStm", TableParser::statement);
+        action("Stm ID AssCall", (p, lhs, rhs) -> {
+            var cur = TreeNode.ofParent(lhs.node, NodeKind.StmtK);
+            passTo(rhs, cur);
+            rhs[0].match = i -> {
+                cur.setAttr(new ExprAttr(SnlLexeme.ASSIGN, null, ExpType.Void));
+                var exp1 = TreeNode.ofParent(cur, NodeKind.ExpK);
+                exp1.setAttr(new ExprAttr(SnlLexeme.ID, VarKind.IdV, ExpType.Integer));
+                p.addName(exp1, i);
+            };
+        });
+        action("AssCall AssignmentRest", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.AssignK);
+            passTo(rhs, lhs.node);
+        });
+        action("AssCall CallStmRest", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.CallK);
+            passTo(rhs, lhs.node);
+        });
+        action("AssignmentRest VariMore := Exp", (p, lhs, rhs) -> {
+            rhs[0].node = lhs.node.getChild().get(0);
+            rhs[2].out = lhs.node::addChild;
+        });
+        action("ConditionalStm IF RelExp THEN StmList ELSE StmList FI", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.IfK);
+            passTo(rhs, lhs.node);
+        });
+        action("LoopStm WHILE RelExp DO StmList ENDWH", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.WhileK);
+            passTo(rhs, lhs.node);
+        });
+        action("InputStm READ ( InVar )", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.ReadK);
+            passTo(rhs, lhs.node);
+        });
+        action("InVar ID", (p, lhs, rhs) ->
+                rhs[0].match = i -> p.addName(lhs.node, i));
+        action("OutputStm WRITE ( Exp )", (p, lhs, rhs) -> {
+            lhs.node.setKind(Kind.WriteK);
+            rhs[2].out = lhs.node::addChild;
+        });
+        action("ReturnStm RETURN", (p, lhs, rhs) ->
+                lhs.node.setKind(Kind.ReturnK));
+        action("ActParamList Exp ActParamMore", (p, lhs, rhs) -> {
+            passTo(rhs, lhs.node);
+            rhs[0].out = lhs.node::addChild;
+        });
+
+        // expressions, a finished operand is passed to the operator on its right as node
+        action("RelExp Exp OtherRelE", (p, lhs, rhs) -> {
+            rhs[0].out = exp -> rhs[1].node = exp;
+            rhs[1].out = lhs.node::addChild;
+        });
+        action("OtherRelE CmpOp Exp", TableParser::operator);
+        action("Exp Term OtherTerm", TableParser::operand);
+        action("OtherTerm EPSILON", (p, lhs, rhs) -> lhs.out.accept(lhs.node));
+        action("OtherTerm AddOp Exp", TableParser::operator);
+        action("Term Factor OtherFactor", TableParser::operand);
+        action("OtherFactor EPSILON", (p, lhs, rhs) -> lhs.out.accept(lhs.node));
+        action("OtherFactor MultOp Term", TableParser::operator);
+        action("Factor INTC", TableParser::constant);
+        action("Factor CHARC", TableParser::constant);
+        action("Factor Variable", (p, lhs, rhs) -> {
+            var exp = expNode();
+            exp.setAttr(new ExprAttr(SnlLexeme.ID, VarKind.IdV, ExpType.Integer));
+            lhs.out.accept(exp);
+            rhs[0].node = exp;
+        });
+        action("Variable ID VariMore", (p, lhs, rhs) -> {
+            passTo(rhs, lhs.node);
+            rhs[0].match = i -> {
+                lhs.node.setKind(Kind.IdEK);
+                p.addName(lhs.node, i);
+            };
+        });
+        action("VariMore [ Exp ]", (p, lhs, rhs) -> rhs[1].out = arrayMem -> {
+            arrayMem.setNodeK(NodeKind.ExpK);
+            arrayMem.setAttr(new ExprAttr(SnlLexeme.ARRAY, VarKind.ArrayMembV, ExpType.Void));
+        });
+        action("VariMore . FieldVar", (p, lhs, rhs) -> {
+            var field = TreeNode.ofParent(lhs.node, NodeKind.ExpK);
+            field.setAttr(new ExprAttr(SnlLexeme.RECORD, VarKind.FiledMembV, ExpType.Void));
+            rhs[1].node = field;
+        });
+        action("FieldVar ID FieldVarMore", (p, lhs, rhs) -> {
+            passTo(rhs, lhs.node);
+            rhs[0].match = i -> p.addName(lhs.node, i);
+        });
+        action("FieldVarMore [ Exp ]", (p, lhs, rhs) -> rhs[1].out = arrayMem -> {
+            lhs.node.addChild(arrayMem);
+            arrayMem.setAttr(new ExprAttr(SnlLexeme.ARRAY, VarKind.ArrayMembV, ExpType.Void));
+        });
+        action("CmpOp <", (p, lhs, rhs) -> op(lhs.node, SnlLexeme.LT, ExpType.Boolean));
+        action("CmpOp =", (p, lhs, rhs) -> op(lhs.node, SnlLexeme.EQ, ExpType.Boolean));
+        action("AddOp +", (p, lhs, rhs) -> op(lhs.node, SnlLexeme.PLUS, ExpType.Integer));
+        action("AddOp -", (p, lhs, rhs) -> op(lhs.node, SnlLexeme.MINUS, ExpType.Integer));
+        action("MultOp *", (p, lhs, rhs) -> op(lhs.node, SnlLexeme.TIMES, ExpType.Integer));
+        action("MultOp /", (p, lhs, rhs) -> op(lhs.node, SnlLexeme.OVER, ExpType.Integer));
+    }
+
+    private static void statement(TableParser parser, Frame lhs, Frame[] rhs) {
+        passTo(rhs, TreeNode.ofParent(lhs.node, NodeKind.StmtK));
+    }
+
+    /**
+     * X -> Operand OtherX, the operand is handed to OtherX
+     */
+    private static void operand(TableParser parser, Frame lhs, Frame[] rhs) {
+        rhs[0].out = exp -> rhs[1].node = exp;
+        rhs[1].out = lhs.out;
+    }
+
+    /**
+     * OtherX -> Op Operand, the operator takes the left operand and the operand as children
+     */
+    private static void operator(TableParser parser, Frame lhs, Frame[] rhs) {
+        var exp = expNode();
+        exp.addChild(lhs.node);
+        lhs.out.accept(exp);
+        rhs[0].node = exp;
+        rhs[1].out = exp::addChild;
+    }
+
+    private static void constant(TableParser parser, Frame lhs, Frame[] rhs) {
+        rhs[0].match = i -> {
+            var exp = expNode();
+            exp.setKind(Kind.ConstK);
+            parser.addName(exp, i);
+            lhs.out.accept(exp);
+        };
+    }
+
+    private static void op(TreeNode exp, SnlLexeme op, ExpType type) {
+        exp.setKind(Kind.OpK);
+        exp.setAttr(new ExprAttr(op, null, type));
+    }
+}
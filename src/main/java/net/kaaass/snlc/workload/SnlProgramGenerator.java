@@ -0,0 +1,496 @@
+package net.kaaass.snlc.workload;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 合成 SNL 程序生成器，用于词法、语法分析的规模与压力测试。
+ * 生成的程序覆盖 generate/grammar 中的全部产生式：类型、记录、数组、嵌套过程、各类语句、深层表达式与注释。
+ * 程序边生成边输出，生成器只保存当前作用域的少量状态，相同种子与规模生成相同程序
+ *
+ * @author kaaass
+ */
+public class SnlProgramGenerator {
+
+    /**
+     * 全局变量：整型、字符、数组与记录各若干个
+     */
+    private static final int GLOBALS = 4;
+
+    private static final int VEC_LOW = 1;
+
+    private static final int VEC_TOP = 16;
+
+    private static final int HIST_TOP = 7;
+
+    private static final int MAX_PROCEDURES = 64;
+
+    private static final String[] COMMENT_WORDS = {
+            "loop", "invariant", "holds", "check", "bounds", "of", "the", "array", "record",
+            "field", "note", "todo", "begin", "end", ":=", ";", "(", ")", "[", "]", "'x'", "42"
+    };
+
+    private final Random random;
+
+    private final long targetSize;
+
+    private Appendable out;
+
+    private long written;
+
+    private int indent;
+
+    /**
+     * 当前所在过程，0 为主程序
+     */
+    private int procedure;
+
+    /**
+     * 当前所在嵌套过程，-1 为不在嵌套过程中
+     */
+    private int nested;
+
+    /**
+     * 已声明的顶层过程数及各过程的嵌套过程数
+     */
+    private int procedures;
+
+    private int[] nestedCount;
+
+    /**
+     * @param seed       随机种子
+     * @param targetSize 目标字符数，生成的程序不小于该大小。程序只含 ASCII 字符，字符数即字节数
+     */
+    public SnlProgramGenerator(long seed, long targetSize) {
+        this.random = new Random(seed);
+        this.targetSize = targetSize;
+    }
+
+    /**
+     * 生成程序并输出
+     *
+     * @return 输出的字符数
+     */
+    public long generate(Appendable out) throws IOException {
+        var count = (int) Math.max(1, Math.min(MAX_PROCEDURES, this.targetSize >> 14));
+        reset(out, count);
+
+        line("program workload");
+        typeDeclarations();
+        globalDeclarations();
+        for (int i = 1; i <= count; i++) {
+            procedure(i);
+        }
+        // 主程序语句直至达到目标大小
+        this.procedure = 0;
+        this.nested = -1;
+        line("begin");
+        this.indent++;
+        var tail = "end.\n".length();
+        boolean more;
+        do {
+            comment();
+            statement(3);
+            more = this.written + tail < this.targetSize;
+            if (more) {
+                emit(";");
+            }
+            newLine();
+        } while (more);
+        this.indent--;
+        emit("end.\n");
+        return this.written;
+    }
+
+    /**
+     * 生成主程序仅含一条赋值语句的程序，右部为指定项数、不加括号的长表达式，不受目标大小影响
+     *
+     * @return 输出的字符数
+     */
+    public long generateExpression(int terms, Appendable out) throws IOException {
+        reset(out, 0);
+        line("program workload");
+        typeDeclarations();
+        globalDeclarations();
+        line("begin");
+        this.indent++;
+        pad();
+        intVariable();
+        emit(" := ");
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                emit(" " + "+-*/".charAt(this.random.nextInt(4)) + " ");
+            }
+            if (this.random.nextBoolean()) {
+                intVariable();
+            } else {
+                emit(Integer.toString(this.random.nextInt(1000)));
+            }
+        }
+        newLine();
+        this.indent--;
+        emit("end.\n");
+        return this.written;
+    }
+
+    private void reset(Appendable out, int procedures) {
+        this.out = out;
+        this.written = 0;
+        this.indent = 0;
+        this.procedure = 0;
+        this.nested = -1;
+        this.nestedCount = new int[procedures + 1];
+        this.procedures = 0;
+    }
+
+    private void typeDeclarations() throws IOException {
+        line("type");
+        this.indent++;
+        line("vec = array [" + VEC_LOW + ".." + VEC_TOP + "] of integer;");
+        line("point = record");
+        this.indent++;
+        line("integer x, y;");
+        line("char tag;");
+        line("array [0.." + HIST_TOP + "] of integer h;");
+        this.indent--;
+        line("end;");
+        line("count = integer;");
+        this.indent--;
+    }
+
+    private void globalDeclarations() throws IOException {
+        line("var");
+        this.indent++;
+        line("integer " + names("i", GLOBALS) + ";");
+        line("char " + names("c", GLOBALS) + ";");
+        line("vec " + names("a", GLOBALS) + ";");
+        line("point " + names("r", GLOBALS) + ";");
+        line("count n0;");
+        this.indent--;
+    }
+
+    /**
+     * 顶层过程 pK(integer x, y; var integer z)，含局部变量与嵌套过程
+     */
+    private void procedure(int index) throws IOException {
+        this.procedure = index;
+        line("procedure p" + index + "(integer x, y; var integer z);");
+        line("var integer t0, t1;");
+        var nestedCount = this.random.nextInt(3);
+        for (int i = 0; i < nestedCount; i++) {
+            nestedProcedure(index, i);
+        }
+        this.nestedCount[index] = nestedCount;
+        this.nested = -1;
+        body(3 + this.random.nextInt(6));
+        this.procedures = index;
+    }
+
+    /**
+     * 嵌套过程，交替使用空参数表与数组、记录参数
+     */
+    private void nestedProcedure(int parent, int index) throws IOException {
+        this.indent++;
+        this.nested = index;
+        if (index % 2 == 0) {
+            line("procedure p" + parent + "q" + index + "();");
+        } else {
+            line("procedure p" + parent + "q" + index + "(vec v; var point s; char k);");
+        }
+        body(2 + this.random.nextInt(3));
+        this.nestedCount[parent] = index + 1;
+        this.indent--;
+    }
+
+    private void body(int statements) throws IOException {
+        line("begin");
+        this.indent++;
+        for (int i = 0; i < statements; i++) {
+            statement(2);
+            if (i + 1 < statements) {
+                emit(";");
+            }
+            newLine();
+        }
+        this.indent--;
+        line("end");
+    }
+
+    private void statement(int depth) throws IOException {
+        pad();
+        var kind = this.random.nextInt(depth > 0 ? 10 : 7);
+        switch (kind) {
+            case 0:
+            case 1:
+                intVariable();
+                emit(" := ");
+                expression(4);
+                break;
+            case 2:
+                charVariable();
+                emit(" := ");
+                charFactor();
+                break;
+            case 3:
+                emit("read(");
+                emit(this.random.nextBoolean() ? intVariableName() : "c" + this.random.nextInt(GLOBALS));
+                emit(")");
+                break;
+            case 4:
+                emit("write(");
+                expression(3);
+                emit(")");
+                break;
+            case 5:
+                call();
+                break;
+            case 6:
+                if (this.procedure > 0 && this.random.nextInt(3) == 0) {
+                    emit("return");
+                } else {
+                    intVariable();
+                    emit(" := ");
+                    deepExpression();
+                }
+                break;
+            case 7:
+            case 8:
+                emit("if ");
+                condition();
+                emit(" then");
+                statementList(depth - 1);
+                pad();
+                emit("else");
+                statementList(depth - 1);
+                pad();
+                emit("fi");
+                break;
+            default:
+                emit("while ");
+                condition();
+                emit(" do");
+                statementList(depth - 1);
+                pad();
+                emit("endwh");
+        }
+    }
+
+    private void statementList(int depth) throws IOException {
+        newLine();
+        this.indent++;
+        var count = 1 + this.random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            statement(depth);
+            if (i + 1 < count) {
+                emit(";");
+            }
+            newLine();
+        }
+        this.indent--;
+    }
+
+    /**
+     * 调用当前可见的过程：已声明的顶层过程与当前过程的嵌套过程
+     */
+    private void call() throws IOException {
+        var nestedCount = this.procedure > 0 ? this.nestedCount[this.procedure] : 0;
+        if (this.nested >= 0) {
+            nestedCount = this.nested;
+        }
+        var choices = this.procedures + nestedCount;
+        if (choices == 0) {
+            emit("write(");
+            expression(2);
+            emit(")");
+            return;
+        }
+        var choice = this.random.nextInt(choices);
+        if (choice < this.procedures) {
+            emit("p" + (choice + 1) + "(");
+            expression(2);
+            emit(", ");
+            expression(2);
+            emit(", ");
+            emit(intVariableName());
+            emit(")");
+        } else {
+            var index = choice - this.procedures;
+            emit("p" + this.procedure + "q" + index + "(");
+            if (index % 2 == 1) {
+                emit("a" + this.random.nextInt(GLOBALS) + ", r" + this.random.nextInt(GLOBALS) + ", ");
+                charFactor();
+            }
+            emit(")");
+        }
+    }
+
+    private void condition() throws IOException {
+        expression(2);
+        emit(this.random.nextBoolean() ? " < " : " = ");
+        expression(2);
+    }
+
+    private void expression(int depth) throws IOException {
+        var kind = this.random.nextInt(depth > 0 ? 6 : 3);
+        switch (kind) {
+            case 0:
+                emit(Integer.toString(this.random.nextInt(1000)));
+                break;
+            case 1:
+            case 2:
+                intVariable();
+                break;
+            case 3:
+                emit("(");
+                expression(depth - 1);
+                emit(")");
+                break;
+            default:
+                expression(depth - 1);
+                emit(" " + "+-*/".charAt(this.random.nextInt(4)) + " ");
+                expression(depth - 1);
+        }
+    }
+
+    /**
+     * 深层嵌套的表达式，右结合的加法链与括号交替
+     */
+    private void deepExpression() throws IOException {
+        var depth = 16 + this.random.nextInt(113);
+        for (int i = 0; i < depth; i++) {
+            emit(i % 2 == 0 ? "(" : "1 + (");
+        }
+        intVariable();
+        for (int i = 0; i < depth; i++) {
+            emit(")");
+        }
+    }
+
+    private void intVariable() throws IOException {
+        var kind = this.random.nextInt(6);
+        var index = this.random.nextInt(GLOBALS);
+        switch (kind) {
+            case 0:
+                emit("a" + index + "[");
+                expression(1);
+                emit("]");
+                break;
+            case 1:
+                emit("r" + index + (this.random.nextBoolean() ? ".x" : ".y"));
+                break;
+            case 2:
+                emit("r" + index + ".h[");
+                expression(1);
+                emit("]");
+                break;
+            default:
+                emit(intVariableName());
+        }
+    }
+
+    /**
+     * 当前作用域可见的整型变量名
+     */
+    private String intVariableName() {
+        if (this.procedure > 0 && this.nested < 0 && this.random.nextBoolean()) {
+            var locals = new String[]{"x", "y", "z", "t0", "t1"};
+            return locals[this.random.nextInt(locals.length)];
+        }
+        return this.random.nextInt(8) == 0 ? "n0" : "i" + this.random.nextInt(GLOBALS);
+    }
+
+    private void charVariable() throws IOException {
+        var index = this.random.nextInt(GLOBALS);
+        emit(this.random.nextBoolean() ? "c" + index : "r" + index + ".tag");
+    }
+
+    private void charFactor() throws IOException {
+        var chr = this.random.nextInt(36);
+        emit("'" + (char) (chr < 26 ? 'a' + chr : '0' + chr - 26) + "'");
+    }
+
+    private void comment() throws IOException {
+        if (this.random.nextInt(16) != 0) {
+            return;
+        }
+        pad();
+        emit("{");
+        var words = 1 + this.random.nextInt(8);
+        for (int i = 0; i < words; i++) {
+            emit(" " + COMMENT_WORDS[this.random.nextInt(COMMENT_WORDS.length)]);
+        }
+        emit(" }");
+        newLine();
+    }
+
+    private static String names(String prefix, int count) {
+        var builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "" : ", ").append(prefix).append(i);
+        }
+        return builder.toString();
+    }
+
+    private void line(String content) throws IOException {
+        pad();
+        emit(content);
+        newLine();
+    }
+
+    private void pad() throws IOException {
+        emit("    ".repeat(this.indent));
+    }
+
+    private void newLine() throws IOException {
+        emit("\n");
+    }
+
+    private void emit(String content) throws IOException {
+        this.out.append(content);
+        this.written += content.length();
+    }
+
+    /**
+     * 解析大小，支持 KB、MB、GB 后缀
+     */
+    public static long parseSize(String size) {
+        var value = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        if (unit > 1) {
+            value = value.substring(0, value.length() - 2).trim();
+        }
+        return Long.parseLong(value) * unit;
+    }
+
+    /**
+     * 用法：SnlProgramGenerator &lt;大小&gt; [种子] [输出文件]，未指定输出文件时输出至标准输出
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法：SnlProgramGenerator <大小，如 64KB、1GB> [种子] [输出文件]");
+            System.exit(1);
+        }
+        var size = parseSize(args[0]);
+        var seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        var generator = new SnlProgramGenerator(seed, size);
+        try (Writer writer = args.length > 2 ?
+                Files.newBufferedWriter(Path.of(args[2]), StandardCharsets.UTF_8) :
+                new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            generator.generate(writer);
+        }
+    }
+}
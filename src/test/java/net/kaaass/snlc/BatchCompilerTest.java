@@ -0,0 +1,109 @@
+package net.kaaass.snlc;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.TableParser;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BatchCompilerTest extends TestCase {
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.dir = Files.createTempDirectory("snlc-batch");
+        Files.createDirectories(this.dir.resolve("sub"));
+        for (int i = 0; i < 12; i++) {
+            var file = this.dir.resolve(i % 2 == 0 ? "p" + i + ".snl" : "sub/p" + i + ".snl");
+            try (var writer = Files.newBufferedWriter(file)) {
+                new SnlProgramGenerator(i, 16 << 10).generate(writer);
+            }
+        }
+        Files.writeString(this.dir.resolve("sub/broken.snl"), "program p\nbegin\n  write(1\nend.\n");
+        Files.writeString(this.dir.resolve("notes.txt"), "program p begin end.");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (var files = Files.walk(this.dir)) {
+            for (var file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public void testCollect() throws IOException {
+        assertEquals(13, BatchCompiler.collect(List.of(this.dir.toString())).size());
+        assertEquals(7, BatchCompiler.collect(List.of(this.dir + "/sub/*.snl")).size());
+        assertEquals(13, BatchCompiler.collect(List.of(this.dir + "/**.snl")).size());
+        var files = BatchCompiler.collect(List.of(this.dir.resolve("notes.txt").toString(), this.dir + "/p*.snl"));
+        assertEquals(7, files.size());
+        assertEquals(this.dir.resolve("notes.txt"), files.get(0));
+    }
+
+    public void testCompile() throws Exception {
+        var files = BatchCompiler.collect(List.of(this.dir.toString()));
+        var lexer = SnlLexerFactory.create();
+        for (var parallelism : new int[]{1, 4}) {
+            var results = new BatchCompiler(lexer, parallelism).compile(files);
+            assertEquals(files.size(), results.size());
+            for (int i = 0; i < files.size(); i++) {
+                assertEquals(files.get(i), results.get(i).getFile());
+            }
+            var failures = BatchCompiler.failures(results);
+            assertEquals(1, failures.size());
+            assertEquals(this.dir.resolve("sub/broken.snl"), failures.get(0).getFile());
+            assertTrue(failures.get(0).getError() instanceof TokenNotMatchException);
+        }
+    }
+
+    public void testSameAsSingle() throws Exception {
+        var files = BatchCompiler.collect(List.of(this.dir + "/p*.snl"));
+        // 默认使用预生成的词法引擎，结果应与运行时编译一致
+        var compiler = new BatchCompiler(4);
+        assertTrue(BatchCompiler.failures(compiler.compile(files)).isEmpty());
+        var lexer = SnlLexerFactory.create();
+        for (var file : files) {
+            var expected = TableParser.of(lexer.process(file)).getAst();
+            assertEquals(dump(expected), dump(compiler.compile(file)));
+        }
+    }
+
+    /**
+     * 先序遍历输出结点种类与名称。printString 不支持记录域表达式
+     */
+    private static String dump(TreeNode root) {
+        var builder = new StringBuilder();
+        var stack = new ArrayDeque<TreeNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            builder.append(node.getDept()).append(' ')
+                    .append(node.getNodeK()).append(' ')
+                    .append(node.getKind()).append(' ')
+                    .append(node.getName()).append('\n');
+            for (int i = node.getChild().size() - 1; i >= 0; i--) {
+                stack.push(node.getChild().get(i));
+            }
+        }
+        return builder.toString();
+    }
+
+    public void testParallelism() {
+        try {
+            new BatchCompiler(SnlLexerFactory.create(), 0);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
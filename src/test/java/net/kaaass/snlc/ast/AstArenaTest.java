@@ -0,0 +1,116 @@
+package net.kaaass.snlc.ast;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.ast.attr.ArrayAttr;
+import net.kaaass.snlc.ast.attr.BaseAttr;
+import net.kaaass.snlc.ast.attr.ExprAttr;
+import net.kaaass.snlc.ast.attr.ProcAttr;
+import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.Parser;
+import net.kaaass.snlc.parser.TableParser;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+public class AstArenaTest extends TestCase {
+
+    private final Lexer<SnlLexeme> lexer = SnlLexerFactory.create();
+
+    public void testPrintString() throws IOException, LexParseException, TokenNotMatchException, TreeNodeException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Objects.requireNonNull(classLoader.getResource("example.snl")).getPath();
+        var astPath = Objects.requireNonNull(classLoader.getResource("ast.txt")).getPath();
+        var code = Files.readString(Path.of(codePath));
+
+        var arena = AstArena.of(Parser.of(this.lexer.process(code).readAllTokens()).getAst());
+
+        assertEquals(Files.readString(Path.of(astPath)), arena.root().printString());
+    }
+
+    /**
+     * 生成的程序含数组与记录，printString 不支持记录域表达式，逐结点比较
+     */
+    public void testSameAsTree() throws IOException, LexParseException, TokenNotMatchException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(13, 64 << 10).generate(builder);
+        var tree = TableParser.of(this.lexer.process(builder.toString())).getAst();
+
+        var arena = AstArena.of(tree);
+
+        assertEquals(dump(tree), dump(arena.root()));
+    }
+
+    public void testNavigation() throws LexParseException, TokenNotMatchException {
+        var code = "program p var integer a, b; begin a := 1; write(a + b) end.";
+        var tree = Parser.of(this.lexer.process(code).readAllTokens()).getAst();
+        var arena = AstArena.of(tree);
+
+        // 先序编号
+        assertEquals(NodeKind.ProK, arena.nodeKind(0));
+        assertEquals(NodeKind.PheadK, arena.nodeKind(1));
+        assertEquals(AstArena.NONE, arena.parent(0));
+        assertEquals(2, arena.nextSibling(1));
+
+        for (int i = 0; i < arena.size(); i++) {
+            var node = arena.node(i);
+            assertEquals(i, node.getIndex());
+            assertEquals(arena.depth(i), node.getDept().intValue());
+            for (var child : node.getChild()) {
+                assertEquals(node, child.getParent());
+                assertEquals(node.getDept() + 1, child.getDept().intValue());
+            }
+        }
+
+        var write = arena.root().getChild().get(2).getChild().get(1);
+        assertEquals(Kind.WriteK, write.getKind());
+        var plus = write.getChild().get(0);
+        assertEquals(SnlLexeme.PLUS, ((ExprAttr) plus.getAttr()).getOp());
+        assertEquals("b", plus.getChild().get(1).getName().get(0));
+        assertEquals(tree.getChild().get(1).getChild().get(0).getSymbol(1),
+                arena.root().getChild().get(1).getChild().get(0).getSymbol(1));
+    }
+
+    static String dump(AstNode root) {
+        var builder = new StringBuilder();
+        var stack = new ArrayDeque<AstNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            builder.append(node.getDept()).append(' ')
+                    .append(node.getNodeK()).append(' ')
+                    .append(node.getKind()).append(' ')
+                    .append(node.getName()).append(' ')
+                    .append(attr(node.getAttr()));
+            for (int i = 0; i < node.getName().size(); i++) {
+                builder.append(' ').append(node.getSymbol(i));
+            }
+            builder.append('\n');
+            for (int i = node.getChild().size() - 1; i >= 0; i--) {
+                stack.push(node.getChild().get(i));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String attr(BaseAttr attr) {
+        if (attr instanceof ExprAttr) {
+            var expr = (ExprAttr) attr;
+            return "expr " + expr.getOp() + " " + expr.getVarKind() + " " + expr.getType();
+        } else if (attr instanceof ProcAttr) {
+            return "proc " + ((ProcAttr) attr).getParamt();
+        } else if (attr instanceof ArrayAttr) {
+            var array = (ArrayAttr) attr;
+            return "array " + array.getLow() + " " + array.getTop() + " " + array.getChildType();
+        }
+        return String.valueOf(attr);
+    }
+}
@@ -0,0 +1,102 @@
+package net.kaaass.snlc.ast;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.Parser;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+public class AstPrinterTest extends TestCase {
+
+    private final Lexer<SnlLexeme> lexer = SnlLexerFactory.create();
+
+    public void testSameAsFile() throws IOException, LexParseException, TokenNotMatchException, TreeNodeException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Objects.requireNonNull(classLoader.getResource("example.snl")).getPath();
+        var astPath = Objects.requireNonNull(classLoader.getResource("ast.txt")).getPath();
+        var expected = Files.readAllBytes(Path.of(astPath));
+        var ast = Parser.of(this.lexer.process(Files.readString(Path.of(codePath)))).getAst();
+
+        var bytes = new ByteArrayOutputStream();
+        try (var writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            new AstPrinter(writer).print(ast);
+        }
+        assertTrue(Arrays.equals(expected, bytes.toByteArray()));
+
+        var builder = new StringBuilder();
+        new AstPrinter(builder).print(AstArena.of(ast).root());
+        assertEquals(new String(expected, StandardCharsets.UTF_8), builder.toString());
+    }
+
+    /**
+     * 深度上万的表达式链，只统计输出，不保存
+     */
+    public void testDeepTree() throws IOException, LexParseException, TokenNotMatchException, TreeNodeException {
+        var terms = 10000;
+        var builder = new StringBuilder("program p var integer a; begin a := 0");
+        for (int i = 1; i < terms; i++) {
+            builder.append("+").append(i);
+        }
+        builder.append(" end.");
+        var ast = Parser.of(this.lexer.process(builder.toString())).getAst();
+
+        var counter = new Appendable() {
+            long lines = 0;
+            long chars = 0;
+            CharSequence last;
+
+            @Override
+            public Appendable append(CharSequence csq) {
+                this.chars += csq.length();
+                if ("\n".contentEquals(csq)) {
+                    this.lines++;
+                } else {
+                    this.last = csq;
+                }
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) {
+                return append(csq.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) {
+                return append(String.valueOf(c));
+            }
+        };
+        new AstPrinter(counter).print(ast);
+
+        // ProK PheadK VarK DecK StmLK StmtK，赋值左部，各项与加号
+        assertEquals(6 + 1 + terms + (terms - 1), counter.lines);
+        assertEquals(String.valueOf(terms - 1), counter.last.toString());
+        assertTrue(counter.chars > 4L * terms * terms / 2);
+    }
+
+    public void testUnsupportedNode() throws LexParseException, TokenNotMatchException {
+        var code = "program p type t = record integer a; end; var t r; begin r.a := 1 end.";
+        var ast = Parser.of(this.lexer.process(code)).getAst();
+
+        var builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(ast);
+            fail();
+        } catch (TreeNodeException | IOException ignored) {
+        }
+        // 出错前的行已写出
+        assertTrue(builder.toString().startsWith("ProK\n    PheadK p\n"));
+    }
+}
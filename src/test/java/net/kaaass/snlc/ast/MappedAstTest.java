@@ -0,0 +1,80 @@
+package net.kaaass.snlc.ast;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.Parser;
+import net.kaaass.snlc.parser.TableParser;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+public class MappedAstTest extends TestCase {
+
+    private final Lexer<SnlLexeme> lexer = SnlLexerFactory.create();
+
+    public void testFile() throws IOException, LexParseException, TokenNotMatchException, TreeNodeException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Objects.requireNonNull(classLoader.getResource("example.snl")).getPath();
+        var astPath = Objects.requireNonNull(classLoader.getResource("ast.txt")).getPath();
+        var ast = Parser.of(this.lexer.process(Files.readString(Path.of(codePath)))).getAst();
+
+        var file = Files.createTempFile("snlc", ".ast");
+        try {
+            AstArena.of(ast).write(file);
+            var mapped = MappedAst.open(file);
+            assertEquals(Files.readString(Path.of(astPath)), mapped.root().printString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * 生成的程序含数组、记录与参数声明，逐结点比较全部字段
+     */
+    public void testSameAsTree() throws IOException, LexParseException, TokenNotMatchException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(17, 64 << 10).generate(builder);
+        var tree = TableParser.of(this.lexer.process(builder.toString())).getAst();
+        var arena = AstArena.of(tree);
+        var bytes = new ByteArrayOutputStream();
+        arena.write(bytes);
+
+        var mapped = MappedAst.of(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(arena.size(), mapped.size());
+        assertEquals(AstArenaTest.dump(tree), AstArenaTest.dump(mapped.root()));
+        var last = mapped.size() - 1;
+        assertEquals(arena.depth(last), mapped.node(last).getDept().intValue());
+        assertEquals(arena.parent(last), mapped.parent(last));
+    }
+
+    public void testInvalid() throws IOException, LexParseException, TokenNotMatchException {
+        var ast = Parser.of(this.lexer.process("program p begin write(1) end.")).getAst();
+        var bytes = new ByteArrayOutputStream();
+        AstArena.of(ast).write(bytes);
+        var data = bytes.toByteArray();
+
+        try {
+            MappedAst.of(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 1)));
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        data[0] = 0;
+        try {
+            MappedAst.of(ByteBuffer.wrap(data));
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
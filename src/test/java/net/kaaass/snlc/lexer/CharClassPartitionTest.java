@@ -0,0 +1,65 @@
+package net.kaaass.snlc.lexer;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.exception.UndefinedTokenException;
+import net.kaaass.snlc.lexer.regex.ExprCharSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.kaaass.snlc.lexer.regex.RegexExpression.*;
+
+public class CharClassPartitionTest extends TestCase {
+
+    enum Lang {
+        WHITESPACE, ID, IF
+    }
+
+    public void testPartition() {
+        var partition = CharClassPartition.of(List.of(
+                range('a', 'z').oneOrMany(),
+                string("if"),
+                concat(range('0', '9'), range('a', 'f'))));
+
+        // i、f、a-e、g-z 除 i 外、0-9
+        assertEquals(5, partition.getClassCount());
+        assertEquals(0, partition.classOf('!'));
+        assertEquals(0, partition.classOf('\u4e00'));
+        assertEquals(partition.classOf('0'), partition.classOf('9'));
+        assertEquals(partition.classOf('a'), partition.classOf('e'));
+        assertEquals(partition.classOf('g'), partition.classOf('z'));
+        assertEquals(partition.classOf('h'), partition.classOf('j'));
+        assertFalse(partition.classOf('e') == partition.classOf('f'));
+        assertFalse(partition.classOf('f') == partition.classOf('g'));
+        assertFalse(partition.classOf('h') == partition.classOf('i'));
+
+        var classes = partition.classesOf(new ExprCharSet('a', 'z'));
+        assertEquals(4, classes.length);
+    }
+
+    public void testUnicodeRange() throws LexParseException, UndefinedTokenException {
+        var g = LexGrammar.<Lang>create();
+        g.defineToken(Lang.IF, "if");
+        g.defineToken(Lang.ID, or(range('a', 'z'), range('\u0100', '\uffff')).oneOrMany());
+        g.defineToken(Lang.WHITESPACE, single(' '));
+
+        var lexer = g.compile();
+
+        // 转移表列数只与等价类数有关
+        var state = g.getContext().getState();
+        assertEquals(5, state.charCount);
+        assertTrue(state.sparse);
+
+        var result = lexer.process("if \u4e2d\uffffa ifx").readAllTokens();
+
+        var expected = new ArrayList<TokenResult<Lang>>();
+        expected.add(new TokenResult<>(g.token(Lang.IF), "if"));
+        expected.add(new TokenResult<>(g.token(Lang.WHITESPACE), " "));
+        expected.add(new TokenResult<>(g.token(Lang.ID), "\u4e2d\uffffa"));
+        expected.add(new TokenResult<>(g.token(Lang.WHITESPACE), " "));
+        expected.add(new TokenResult<>(g.token(Lang.ID), "ifx"));
+
+        assertEquals(expected, result);
+    }
+}
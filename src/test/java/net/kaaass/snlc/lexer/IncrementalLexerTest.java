@@ -0,0 +1,97 @@
+package net.kaaass.snlc.lexer;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.exception.UnexpectedCharException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static net.kaaass.snlc.lexer.TokenAssert.assertSameTokens;
+
+public class IncrementalLexerTest extends TestCase {
+
+    private final Lexer<SnlLexeme> lexer = SnlLexerFactory.create();
+
+    private void assertSameAsFull(IncrementalLexer<SnlLexeme> incremental) throws LexParseException {
+        var expected = this.lexer.process(incremental.getText()).readAllTokens();
+        assertSameTokens(expected, incremental.getTokens());
+    }
+
+    public void testEdit() throws LexParseException {
+        var incremental = new IncrementalLexer<>(this.lexer, "program p\nbegin\n  write(ab)\nend. {x}");
+        assertSameAsFull(incremental);
+
+        // 修改标识符，只替换一个 token
+        var change = incremental.edit(26, 0, "c");
+        assertEquals("program p\nbegin\n  write(abc)\nend. {x}", incremental.getText());
+        assertEquals(new IncrementalLexer.Change(5, 1, 1, 3), change);
+        assertSameAsFull(incremental);
+
+        // 插入换行，其后 token 平移
+        incremental.edit(16, 0, "\n\n");
+        assertSameAsFull(incremental);
+
+        // 开启注释吞掉后文，闭合后恢复
+        incremental.edit(0, 0, "{");
+        assertSameAsFull(incremental);
+        assertTrue(incremental.getTokens().isEmpty());
+        incremental.edit(10, 0, "}");
+        assertSameAsFull(incremental);
+
+        incremental.edit(0, incremental.getText().length(), "");
+        assertTrue(incremental.getTokens().isEmpty());
+    }
+
+    public void testError() throws LexParseException {
+        var incremental = new IncrementalLexer<>(this.lexer, "program p begin write(1) end.");
+        try {
+            incremental.edit(22, 1, "#");
+            fail();
+        } catch (LexParseException e) {
+            assertTrue(e instanceof UnexpectedCharException);
+        }
+        // 出错时保持原状
+        assertEquals("program p begin write(1) end.", incremental.getText());
+        assertSameAsFull(incremental);
+    }
+
+    public void testRandomEdits() throws IOException, LexParseException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(11, 16 << 10).generate(builder);
+        var incremental = new IncrementalLexer<>(this.lexer, builder.toString());
+        var fragments = new String[]{"", " ", "\n", "a", "1", ":=", "{", "}", "{ x }", "end", ";", "'c'", "..", "."};
+        var random = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            var text = incremental.getText();
+            var offset = random.nextInt(text.length() + 1);
+            var removed = Math.min(random.nextInt(4), text.length() - offset);
+            var inserted = fragments[random.nextInt(fragments.length)];
+            var size = incremental.getTokens().size();
+            try {
+                var change = incremental.edit(offset, removed, inserted);
+                assertEquals(size - change.getRemoved() + change.getInserted(), incremental.getTokens().size());
+            } catch (LexParseException e) {
+                continue;
+            }
+            assertSameAsFull(incremental);
+        }
+    }
+
+    /**
+     * 小修改只重新解析修改处附近
+     */
+    public void testRelexedSize() throws IOException, LexParseException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(3, 256 << 10).generate(builder);
+        var incremental = new IncrementalLexer<>(this.lexer, builder.toString());
+        var offset = incremental.getText().indexOf(":=", 128 << 10);
+        var change = incremental.edit(offset, 2, ":= 1 +");
+        assertTrue(change.getRelexed() < 64);
+        assertTrue(change.getInserted() < 8);
+        assertSameAsFull(incremental);
+    }
+}
@@ -0,0 +1,98 @@
+package net.kaaass.snlc.lexer;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.exception.UndefinedContextException;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import static net.kaaass.snlc.lexer.regex.RegexExpression.*;
+
+public class LexCacheTest extends TestCase {
+
+    public void testLoad() throws IOException, LexParseException, UndefinedContextException {
+        var dir = Files.createTempDirectory("lexc");
+        try {
+            String code = "program p\n" +
+                    "var integer v1;\n" +
+                    "begin\n" +
+                    "\t{read to variable}\n" +
+                    "\tread(v1)\n" +
+                    "end.";
+            var compiled = SnlLexerFactory.create(dir);
+            // 第一次编译写入缓存
+            assertNotNull(compiled.getContext("DEFAULT").getState().getSource());
+            var cached = SnlLexerFactory.create(dir);
+            // 第二次直接读入，不经过构造流程
+            assertNull(cached.getContext("DEFAULT").getState().getSource());
+
+            var expected = compiled.process(code).readAllTokens();
+            var result = cached.process(code).readAllTokens();
+            assertEquals(expected.toString(), result.toString());
+        } finally {
+            try (var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    public void testCorrupted() throws IOException, LexParseException, UndefinedContextException {
+        var dir = Files.createTempDirectory("lexc");
+        try {
+            String code = "program p var integer v1; begin read(v1) end.";
+            var expected = SnlLexerFactory.create(dir).process(code).readAllTokens();
+            Path file;
+            try (var files = Files.list(dir)) {
+                file = files.findFirst().orElseThrow();
+            }
+            var bytes = Files.readAllBytes(file);
+            // 定位首个上下文的字符区间数，改为负数
+            var in = new DataInputStream(new ByteArrayInputStream(bytes));
+            in.readInt();
+            in.readInt();
+            in.readUTF();
+            in.readInt();
+            in.readUTF();
+            in.readBoolean();
+            in.readInt();
+            int offset = bytes.length - in.available();
+            ByteBuffer.wrap(bytes).putInt(offset, -1);
+            Files.write(file, bytes);
+
+            var rebuilt = SnlLexerFactory.create(dir);
+            // 缓存损坏时重新构造
+            assertNotNull(rebuilt.getContext("DEFAULT").getState().getSource());
+            assertEquals(expected.toString(), rebuilt.process(code).readAllTokens().toString());
+        } finally {
+            try (var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    enum Lang {
+        A
+    }
+
+    public void testKey() {
+        var g1 = LexGrammar.<Lang>create();
+        g1.defineToken(Lang.A, "a b");
+        var g2 = LexGrammar.<Lang>create();
+        g2.defineToken(Lang.A, concat(single('a'), string(" b")));
+        var g3 = LexGrammar.<Lang>create();
+        g3.defineToken(Lang.A, "a b");
+
+        var key1 = LexCache.keyOf(g1.compile().getContexts());
+        var key2 = LexCache.keyOf(g2.compile().getContexts());
+        var key3 = LexCache.keyOf(g3.compile().getContexts());
+        assertFalse(key1.equals(key2));
+        assertEquals(key1, key3);
+    }
+}
@@ -2,12 +2,19 @@ package net.kaaass.snlc.lexer;
 
 import junit.framework.TestCase;
 import net.kaaass.snlc.lexer.dfa.DfaUtils;
+import net.kaaass.snlc.lexer.engine.BasicEngine;
 import net.kaaass.snlc.lexer.exception.ContextStackNonEmptyException;
+import net.kaaass.snlc.lexer.exception.EofParseException;
 import net.kaaass.snlc.lexer.exception.LexParseException;
 import net.kaaass.snlc.lexer.exception.UndefinedContextException;
 import net.kaaass.snlc.lexer.exception.UndefinedTokenException;
+import net.kaaass.snlc.lexer.exception.UnexpectedCharException;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static net.kaaass.snlc.lexer.regex.RegexExpression.*;
 
@@ -173,4 +180,157 @@ public class LexerTest extends TestCase {
 
         assertEquals(expected, result);
     }
-}
\ No newline at end of file
+
+    public void testTokenSlice() throws LexParseException, UndefinedTokenException {
+        var g = LexGrammar.<Lang1>create();
+        g.defineToken(Lang1.IF, "if");
+        g.defineToken(Lang1.ALPHABET, range('a', 'z').oneOrMany());
+        g.defineToken(Lang1.WHITESPACE, charset(' ', '\n'));
+
+        var result = g.compile().process("if abc").readAllTokens();
+
+        // 字面量 token 直接使用字面量，其余 token 为原串切片
+        var alphabet = result.get(2);
+        assertEquals(3, alphabet.getStart());
+        assertEquals(6, alphabet.getEnd());
+        assertFalse(alphabet.getText() instanceof String);
+        assertEquals("abc", alphabet.getToken());
+        assertEquals(0, result.get(0).getStart());
+        assertEquals(2, result.get(0).getEnd());
+    }
+
+    public void testNextToken() throws LexParseException, UndefinedTokenException {
+        var g = LexGrammar.<Lang1>create();
+        g.defineToken(Lang1.ALPHABET, range('a', 'z').oneOrMany());
+        g.defineToken(Lang1.WHITESPACE, charset(' ', '\n')).ignore();
+        var lexer = g.compile();
+
+        // nextToken 跳过忽略的 token，流结束返回 null
+        var engine = lexer.process("ab  cd ");
+        assertEquals("ab", engine.nextToken().getToken());
+        assertEquals("cd", engine.nextToken().getToken());
+        assertNull(engine.nextToken());
+        assertNull(engine.nextToken());
+
+        // readToken 仍以异常表示流结束
+        engine = lexer.process("ab");
+        assertEquals("ab", engine.readToken().getToken());
+        try {
+            engine.readToken();
+            fail();
+        } catch (EofParseException e) {
+            assertEquals(0, e.getStackTrace().length);
+        }
+    }
+
+    public void testSparseCharset() throws LexParseException, UndefinedTokenException {
+        var g = LexGrammar.<Lang1>create();
+        g.defineToken(Lang1.ALPHABET, or(range('a', 'z'), range('\u4e00', '\u4e05')).oneOrMany());
+        g.defineToken(Lang1.WHITESPACE, charset(' ', '\n'));
+
+        var lexer = g.compile();
+
+        // 超出稠密字符表的字符由区间表回退处理
+        var engine = lexer.process("a\u4e01 \u4e05b");
+        var result = engine.readAllTokens();
+
+        var expected = new ArrayList<TokenResult<Lang1>>();
+        expected.add(new TokenResult<>(g.token(Lang1.ALPHABET), "a\u4e01"));
+        expected.add(new TokenResult<>(g.token(Lang1.WHITESPACE), " "));
+        expected.add(new TokenResult<>(g.token(Lang1.ALPHABET), "\u4e05b"));
+
+        assertEquals(expected, result);
+
+        try {
+            lexer.process("a\u4e06").readAllTokens();
+            fail();
+        } catch (LexParseException e) {
+            assertTrue(e instanceof UnexpectedCharException);
+        }
+    }
+
+    public void testIndependentEngines() throws LexParseException, UndefinedTokenException {
+        var g = LexGrammar.<Lang1>create();
+        g.defineToken(Lang1.IF, "if");
+        g.defineToken(Lang1.ALPHABET, range('a', 'z').oneOrMany());
+        g.defineToken(Lang1.WHITESPACE, charset(' ', '\n'));
+
+        var lexer = g.compile();
+
+        // 交错读取两个引擎互不影响
+        var first = lexer.process("if ab");
+        var second = lexer.process("cd if");
+        assertNotSame(first, second);
+        assertEquals(new TokenResult<>(g.token(Lang1.IF), "if"), first.readToken());
+        assertEquals(new TokenResult<>(g.token(Lang1.ALPHABET), "cd"), second.readToken());
+        first.readToken();
+        assertEquals(new TokenResult<>(g.token(Lang1.ALPHABET), "ab"), first.readToken());
+        second.readToken();
+        assertEquals(new TokenResult<>(g.token(Lang1.IF), "if"), second.readToken());
+
+        // 指定引擎，共享已编译的上下文
+        var basic = lexer.withEngine(BasicEngine::new);
+        assertTrue(basic.process("if").getClass() == BasicEngine.class);
+        assertSame(lexer.getContexts(), basic.getContexts());
+        assertEquals(lexer.process("ab if").readAllTokens(), basic.process("ab if").readAllTokens());
+    }
+
+    public void testReadOnlyContexts() throws Exception {
+        var g = LexGrammar.<Lang1>create();
+        g.defineToken(Lang1.IF, "if");
+        g.defineToken(Lang1.WHITESPACE, charset(' ', '\n'));
+
+        var lexer = g.compile();
+        var state = lexer.getContext(LexContext.DEFAULT).getState();
+
+        // 再次编译或链接语法不影响已创建的词法分析器
+        g.defineToken(Lang1.ALPHABET, range('a', 'z').oneOrMany());
+        var other = g.compile();
+        g.link(Map.of());
+        assertSame(state, lexer.getContext(LexContext.DEFAULT).getState());
+        assertNotSame(state, other.getContext(LexContext.DEFAULT).getState());
+        assertEquals(2, lexer.getContext(LexContext.DEFAULT).getTokens().size());
+        try {
+            lexer.process("ab").readAllTokens();
+            fail();
+        } catch (UnexpectedCharException ignored) {
+        }
+        assertEquals(1, other.process("ab").readAllTokens().size());
+
+        var context = lexer.getContext(LexContext.DEFAULT);
+        try {
+            context.compile();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+        try {
+            context.addToken(new TokenInfo<>(Lang1.AS, string("as")));
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    public void testConcurrentProcess() throws Exception {
+        var g = LexGrammar.<Lang1>create();
+        g.defineToken(Lang1.IF, "if");
+        g.defineToken(Lang1.ALPHABET, range('a', 'z').oneOrMany());
+        g.defineToken(Lang1.WHITESPACE, charset(' ', '\n'));
+
+        var lexer = g.compile();
+        var code = "if abc\n".repeat(2000);
+        var expected = lexer.process(code).readAllTokens();
+
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<List<TokenResult<Lang1>>>>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(pool.submit(() -> lexer.process(code).readAllTokens()));
+            }
+            for (var future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
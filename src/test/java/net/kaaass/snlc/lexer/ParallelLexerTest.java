@@ -0,0 +1,92 @@
+package net.kaaass.snlc.lexer;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.engine.MappedFileStream;
+import net.kaaass.snlc.lexer.engine.StringStream;
+import net.kaaass.snlc.lexer.exception.ContextStackNonEmptyException;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.exception.UnexpectedCharException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static net.kaaass.snlc.lexer.TokenAssert.assertSameTokens;
+
+public class ParallelLexerTest extends TestCase {
+
+    private final Lexer<SnlLexeme> lexer = SnlLexerFactory.create();
+
+    private ParallelLexer<SnlLexeme> parallel(int chunkSize) {
+        var ret = new ParallelLexer<>(this.lexer, 4);
+        ret.setMinChunkSize(chunkSize);
+        ret.setChunksPerThread(64);
+        return ret;
+    }
+
+    public void testSameAsSequential() throws IOException, LexParseException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(5, 256 << 10).generate(builder);
+        var code = builder.toString();
+        var expected = this.lexer.process(code).readAllTokens();
+
+        for (var chunkSize : new int[]{64, 1 << 10, 1 << 16}) {
+            var result = parallel(chunkSize).lex(new StringStream(code));
+            assertSameTokens(expected, result, true);
+        }
+    }
+
+    /**
+     * 块边界位于注释中，需从注释结束后重新同步
+     */
+    public void testBoundaryInComment() throws LexParseException {
+        var code = "program p\n{ a b c d e f g h i j k l m n o p }\nbegin {x} write( 1 ) { y\n z } end.";
+        var expected = this.lexer.process(code).readAllTokens();
+
+        for (var chunkSize : new int[]{1, 2, 3, 5, 8}) {
+            assertSameTokens(expected, parallel(chunkSize).lex(new StringStream(code)), true);
+        }
+    }
+
+    public void testMappedFile() throws IOException, LexParseException {
+        var builder = new StringBuilder("\ufeff{ bom }\n");
+        new SnlProgramGenerator(9, 64 << 10).generate(builder);
+        var code = builder.toString();
+        var expected = this.lexer.process(new MappedFileStream(
+                ByteBuffer.wrap(code.getBytes(StandardCharsets.UTF_8)))).readAllTokens();
+
+        var result = parallel(256).lex(new MappedFileStream(ByteBuffer.wrap(code.getBytes(StandardCharsets.UTF_8))));
+        assertSameTokens(expected, result, true);
+    }
+
+    public void testError() {
+        var code = "program p\nbegin\n  write(1);\n  a := b # c\nend.";
+        LexParseException expected = null;
+        try {
+            this.lexer.process(code).readAllTokens();
+            fail();
+        } catch (LexParseException e) {
+            expected = e;
+        }
+        try {
+            parallel(4).lex(new StringStream(code));
+            fail();
+        } catch (LexParseException e) {
+            assertTrue(e instanceof UnexpectedCharException);
+            assertEquals(4, e.getLine());
+            assertEquals(expected.getLine(), e.getLine());
+            assertEquals(expected.getPosition(), e.getPosition());
+        }
+
+        // 注释中的内容在推测解析时出错，但实际不是错误
+        try {
+            parallel(4).lex(new StringStream("program p begin { # } write(1) end. { open"));
+            fail();
+        } catch (LexParseException e) {
+            assertTrue(e instanceof ContextStackNonEmptyException);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.kaaass.snlc.lexer;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+
+import java.nio.CharBuffer;
+
+public class SymbolTableTest extends TestCase {
+
+    public void testIntern() {
+        var table = new SymbolTable(2);
+
+        var a = table.intern("abc");
+        var b = table.intern(CharBuffer.wrap("xabcx", 1, 4));
+        assertEquals(a, b);
+        assertEquals("abc", table.name(a));
+        assertEquals(SymbolTable.NONE, table.lookup("abd"));
+
+        // 扩容后符号号保持不变
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 1, table.intern("v" + i));
+        }
+        assertEquals(1001, table.size());
+        assertEquals(a, table.lookup("abc"));
+        assertEquals(500, table.lookup(new StringBuilder("v499")));
+    }
+
+    public void testLexerIntern() throws LexParseException {
+        var engine = SnlLexerFactory.create().process("abc := abc + b1; integer");
+        var result = engine.readAllTokens();
+
+        var first = result.get(0);
+        var second = result.get(2);
+        assertEquals(SnlLexeme.ID, first.getDefinition().getType());
+        assertEquals(first.getSymbol(), second.getSymbol());
+        assertSame(first.getToken(), second.getToken());
+        assertFalse(first.getSymbol() == result.get(4).getSymbol());
+        // 关键字与常量不驻留
+        assertEquals(SymbolTable.NONE, result.get(6).getSymbol());
+        assertEquals(2, engine.getSymbolTable().size());
+    }
+}
@@ -0,0 +1,44 @@
+package net.kaaass.snlc.lexer;
+
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+
+/**
+ * 词法分析测试共用的断言
+ *
+ * @author kaaass
+ */
+final class TokenAssert {
+
+    private TokenAssert() {
+    }
+
+    /**
+     * 逐个比较两组 token，包括位置信息
+     */
+    static <T> void assertSameTokens(List<TokenResult<T>> expected, List<TokenResult<T>> result) {
+        assertSameTokens(expected, result, false);
+    }
+
+    /**
+     * 逐个比较两组 token，包括位置信息。符号表编号只在两组 token 使用相同的插入顺序时才可比较
+     */
+    static <T> void assertSameTokens(List<TokenResult<T>> expected, List<TokenResult<T>> result,
+                                     boolean checkSymbol) {
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            var a = expected.get(i);
+            var b = result.get(i);
+            var at = "token " + i;
+            assertEquals(at, a, b);
+            assertEquals(at, a.getStart(), b.getStart());
+            assertEquals(at, a.getEnd(), b.getEnd());
+            assertEquals(at, a.getLine(), b.getLine());
+            assertEquals(at, a.getColumn(), b.getColumn());
+            if (checkSymbol) {
+                assertEquals(at, a.getSymbol(), b.getSymbol());
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package net.kaaass.snlc.lexer;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+
+public class TokenBufferTest extends TestCase {
+
+    public void testReadAll() throws LexParseException {
+        var code = "program p\n  var integer ab;\n{c} ab := 12\n";
+        var lexer = SnlLexerFactory.create();
+        var expected = lexer.process(code).readAllTokens();
+        var buffer = TokenBuffer.readAll(lexer.process(code), SnlLexeme.class);
+
+        assertEquals(expected.size(), buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            var token = expected.get(i);
+            assertEquals(token.getDefinition().getType(), buffer.type(i));
+            assertEquals(token.getToken(), buffer.text(i));
+            assertEquals(token.getSymbol(), buffer.symbol(i));
+            assertEquals(token.getStart(), buffer.start(i));
+            assertEquals(token.getEnd() - token.getStart(), buffer.length(i));
+        }
+
+        // ab := 12
+        assertEquals(SnlLexeme.ID, buffer.type(6));
+        assertEquals(3, buffer.line(6));
+        assertEquals(4, buffer.column(6));
+        assertEquals(SnlLexeme.INTC, buffer.type(8));
+        assertEquals("12", buffer.text(8));
+        assertEquals(10, buffer.column(8));
+        assertEquals(buffer.symbol(4), buffer.symbol(6));
+    }
+}
@@ -2,13 +2,15 @@ package net.kaaass.snlc.lexer.dfa;
 
 import junit.framework.TestCase;
 import net.kaaass.snlc.lexer.GlushkovRegexTranslator;
+import net.kaaass.snlc.lexer.LexContext;
 import net.kaaass.snlc.lexer.LexGrammar;
 import net.kaaass.snlc.lexer.SubsetConstructAlgorithm;
 import net.kaaass.snlc.lexer.exception.LexParseException;
 import net.kaaass.snlc.lexer.nfa.NfaUtils;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 import static net.kaaass.snlc.lexer.regex.RegexExpression.*;
 
@@ -106,4 +108,67 @@ public class DfaSimplifierTest extends TestCase {
         g.defineToken("<>", regex);
         System.out.println(g.compile().process("abc").readToken());;
     }
-}
\ No newline at end of file
+
+    public void testHopcroftGroupMatrix() {
+        var mat = new int[][]{
+                {0, 1, 2},
+                {0, 1, 3},
+                {1, 0, 2},
+                {1, 1, 3},
+                {1, 1, 1}
+        };
+        var result = HopcroftSimplifier.groupMatrix(mat,
+                List.of(Set.of(2, 3), Set.of(0, 1, 4)));
+        assertEquals(3, result.size());
+        assertTrue(result.contains(Set.of(2, 3)));
+        assertTrue(result.contains(Set.of(4)));
+        assertTrue(result.contains(Set.of(0, 1)));
+
+        // 只能转移到死状态的状态不与其他状态合并
+        mat = new int[][]{
+                {1, -1},
+                {-1, -1},
+                {-1, 1}
+        };
+        result = HopcroftSimplifier.groupMatrix(mat, List.of(Set.of(0, 1, 2)));
+        assertEquals(DfaSimplifier.groupMatrix(mat, List.of(Set.of(0, 1, 2))).size(), result.size());
+    }
+
+    public void testHopcroftSameShape() {
+        var grammar = SnlLexerFactory.grammar();
+        var contexts = new ArrayList<LexContext<SnlLexeme>>();
+        contexts.add(grammar.getContext());
+        contexts.addAll(grammar.getSubContext());
+        for (var context : contexts) {
+            context.compile(DfaSimplifier::run);
+            var naive = context.getState();
+            context.compile(HopcroftSimplifier::run);
+            var hopcroft = context.getState();
+
+            assertEquals(naive.transMat.length, hopcroft.transMat.length);
+            assertTrue(Arrays.equals(naive.bounds, hopcroft.bounds));
+            assertTrue(Arrays.equals(naive.boundIds, hopcroft.boundIds));
+            // 逐状态比较可达的转移与匹配
+            var visited = new HashMap<Integer, Integer>();
+            var queue = new ArrayDeque<int[]>();
+            queue.add(new int[]{naive.startState, hopcroft.startState});
+            while (!queue.isEmpty()) {
+                var pair = queue.poll();
+                var prev = visited.putIfAbsent(pair[0], pair[1]);
+                if (prev != null) {
+                    assertEquals((int) prev, pair[1]);
+                    continue;
+                }
+                assertEquals(naive.tokenMat.get(pair[0]), hopcroft.tokenMat.get(pair[1]));
+                for (int chr = 0; chr < naive.charCount; chr++) {
+                    int a = naive.transMat[pair[0]][chr];
+                    int b = hopcroft.transMat[pair[1]][chr];
+                    assertEquals(a == DfaState.DEAD, b == DfaState.DEAD);
+                    if (a != DfaState.DEAD) {
+                        queue.add(new int[]{a, b});
+                    }
+                }
+            }
+        }
+    }
+}
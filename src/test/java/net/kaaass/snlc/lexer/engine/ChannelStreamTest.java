@@ -0,0 +1,100 @@
+package net.kaaass.snlc.lexer.engine;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+public class ChannelStreamTest extends TestCase {
+
+    private static ChannelStream of(String data, int capacity) {
+        var input = new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+        return new ChannelStream(Channels.newChannel(input), StandardCharsets.UTF_8, capacity);
+    }
+
+    public void testRevert() {
+        var ss = of("0123456789", 4);
+
+        assertEquals('0', ss.read());
+        assertEquals('1', ss.read());
+
+        var state = ss.getState();
+
+        assertEquals('2', ss.read());
+        assertEquals('3', ss.read());
+        assertEquals('4', ss.read());
+        assertEquals('5', ss.read());
+
+        ss.revert(state);
+
+        assertEquals('2', ss.read());
+
+        ss.accept(ss.getState());
+        var sb = new StringBuilder();
+        while (!ss.isEof()) {
+            sb.append(ss.read());
+        }
+        assertEquals("3456789", sb.toString());
+        assertEquals(IRevertibleStream.EOF, ss.read());
+    }
+
+    public void testMultiByte() {
+        // 多字节字符与代理对跨越缓冲区边界
+        var data = "a\u4e2d\ud83d\ude00\u6587b\ud83d\ude01".repeat(50);
+        var ss = of(data, 2);
+        var sb = new StringBuilder();
+        while (!ss.isEof()) {
+            sb.append(ss.read());
+            ss.accept(ss.getState());
+        }
+        assertEquals(data, sb.toString());
+    }
+
+    public void testMalformed() {
+        // 与 MappedFileStream 相同，非法的字节序列解码为 U+FFFD
+        var bytes = new byte[]{'a', (byte) 0xe4, (byte) 0xb8, 'b', (byte) 0xff};
+        var ss = new ChannelStream(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8, 2);
+        var sb = new StringBuilder();
+        while (!ss.isEof()) {
+            sb.append(ss.read());
+        }
+        assertEquals("a\uFFFDb\uFFFD", sb.toString());
+    }
+
+    public void testReadError() {
+        var input = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        };
+        var ss = new ChannelStream(Channels.newChannel(input));
+        try {
+            ss.read();
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+    }
+
+    public void testSameTokens() throws IOException, LexParseException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Path.of(Objects.requireNonNull(classLoader.getResource("example.snl")).getPath());
+        var lexer = SnlLexerFactory.create();
+
+        var expected = lexer.process(Files.readString(codePath)).readAllTokens();
+        try (var stream = ChannelStream.open(codePath)) {
+            var result = lexer.process(stream).readAllTokens();
+            assertEquals(expected, result);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package net.kaaass.snlc.lexer.engine;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+public class MappedFileStreamTest extends TestCase {
+
+    private static MappedFileStream of(String data) {
+        return new MappedFileStream(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public void testRevert() {
+        var ss = of("a\u4e2d\ud83d\ude00b");
+
+        assertEquals('a', ss.read());
+
+        var state = ss.getState();
+
+        assertEquals('\u4e2d', ss.read());
+        assertEquals('\uD83D', ss.read());
+
+        var surrogate = ss.getState();
+
+        assertEquals('\uDE00', ss.read());
+        assertEquals('b', ss.read());
+        assertTrue(ss.isEof());
+        assertEquals(IRevertibleStream.EOF, ss.read());
+
+        ss.revert(surrogate);
+        assertEquals('\uDE00', ss.read());
+
+        ss.revert(state);
+        assertEquals("\u4e2d\ud83d\ude00b", readAll(ss));
+    }
+
+    public void testStateOrder() {
+        var ss = of("\ud83d\ude00\ud83d\ude01a");
+        var last = ss.getState();
+        while (!ss.isEof()) {
+            ss.read();
+            var state = ss.getState();
+            assertTrue(state > last);
+            last = state;
+        }
+
+        // 位于四字节字符首字节之后，先读出低代理
+        ss.seek(1);
+        assertEquals("\ude00\ud83d\ude01a", readAll(ss));
+        ss.seek(2);
+        assertEquals("\uFFFD\uFFFD\ud83d\ude01a", readAll(ss));
+    }
+
+    public void testSlice() {
+        var ss = of("ab\u4e2dc");
+        ss.read();
+        var start = ss.getState();
+        ss.read();
+        var ascii = ss.getState();
+        ss.read();
+        ss.read();
+        var end = ss.getState();
+
+        var slice = ss.slice(start, ascii);
+        assertFalse(slice instanceof String);
+        assertEquals("b", slice.toString());
+        assertEquals("b\u4e2dc", ss.slice(start, end).toString());
+        assertEquals(end, ss.getState());
+
+        ss.close();
+        assertTrue(ss.isEof());
+        // 关闭前的切片仍然可用
+        assertEquals('b', slice.charAt(0));
+    }
+
+    /**
+     * 超过 1 GiB 的文件。使用稀疏文件，只有末尾的数据实际写入
+     */
+    public void testLargeFile() throws IOException {
+        var file = Files.createTempFile("mapped", ".snl");
+        try {
+            long size = (1L << 30) + 16;
+            try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(size);
+                raf.seek(size - 4);
+                raf.write("\ud83d\ude00".getBytes(StandardCharsets.UTF_8));
+            }
+            try (var ss = MappedFileStream.open(file)) {
+                assertEquals(size, ss.length());
+                ss.seek(size - 4);
+                var state = ss.getState();
+                assertEquals('\ud83d', ss.read());
+                assertTrue(ss.getState() > state);
+                assertEquals('\ude00', ss.read());
+                assertTrue(ss.isEof());
+                ss.revert(state + 1);
+                assertEquals('\ude00', ss.read());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public void testMalformed() {
+        var ss = new MappedFileStream(ByteBuffer.wrap(new byte[]{'a', (byte) 0xe4, (byte) 0xb8, 'b', (byte) 0xff}));
+        assertEquals("a\uFFFDb\uFFFD", readAll(ss));
+    }
+
+    public void testSameTokens() throws IOException, LexParseException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Path.of(Objects.requireNonNull(classLoader.getResource("example.snl")).getPath());
+        var lexer = SnlLexerFactory.create();
+
+        var expected = lexer.process(Files.readString(codePath)).readAllTokens();
+        var result = lexer.process(codePath).readAllTokens();
+
+        assertEquals(expected, result);
+    }
+
+    private static String readAll(IRevertibleStream stream) {
+        var sb = new StringBuilder();
+        while (!stream.isEof()) {
+            sb.append(stream.read());
+        }
+        return sb.toString();
+    }
+}
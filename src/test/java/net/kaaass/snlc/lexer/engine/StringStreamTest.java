@@ -20,4 +20,13 @@ public class StringStreamTest extends TestCase {
         assertEquals('2', ss.read());
     }
 
-}
\ No newline at end of file
+    public void testSlice() {
+        var ss = new StringStream("0123456789");
+
+        assertEquals('0', ss.read());
+
+        assertEquals("234", ss.slice(2, 5).toString());
+        assertEquals(1, ss.getState());
+        assertEquals('1', ss.read());
+    }
+}
@@ -0,0 +1,47 @@
+package net.kaaass.snlc.lexer.snl;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.exception.UnexpectedCharException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+public class SnlGeneratedEngineTest extends TestCase {
+
+    public void testSameTokens() throws IOException, LexParseException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Objects.requireNonNull(classLoader.getResource("example.snl")).getPath();
+        String code = Files.readString(Path.of(codePath)) + "\n{comment} x1 := 'a'";
+
+        var expected = SnlLexerFactory.create().process(code).readAllTokens();
+        var result = SnlGeneratedEngine.of(code).readAllTokens();
+
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDefinition().getType(), result.get(i).getDefinition().getType());
+            assertEquals(expected.get(i).getToken(), result.get(i).getToken());
+        }
+    }
+
+    public void testFactory() throws LexParseException {
+        var lexer = SnlLexerFactory.generated();
+        assertSame(SnlGeneratedEngine.LEXER, lexer);
+        // 工厂返回的词法分析器使用生成的引擎
+        var engine = lexer.process("program p begin write(1) end.");
+        assertTrue(engine instanceof SnlGeneratedEngine);
+        assertEquals(SnlLexerFactory.create().process("program p begin write(1) end.").readAllTokens().toString(),
+                engine.readAllTokens().toString());
+    }
+
+    public void testUnexpectedChar() {
+        try {
+            SnlGeneratedEngine.of("a # b").readAllTokens();
+            fail();
+        } catch (LexParseException e) {
+            assertTrue(e instanceof UnexpectedCharException);
+        }
+    }
+}
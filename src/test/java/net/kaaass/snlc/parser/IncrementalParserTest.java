@@ -0,0 +1,141 @@
+package net.kaaass.snlc.parser;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.ast.NodeKind;
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.lexer.IncrementalLexer;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+public class IncrementalParserTest extends TestCase {
+
+    private IncrementalLexer<SnlLexeme> lexer;
+
+    private IncrementalParser parser;
+
+    @Override
+    protected void setUp() throws Exception {
+        var codePath = Objects.requireNonNull(this.getClass().getClassLoader().getResource("example.snl")).getPath();
+        this.lexer = new IncrementalLexer<>(ParserTest.lexer, Files.readString(Path.of(codePath)));
+        this.parser = new IncrementalParser(this.lexer.getTokens());
+    }
+
+    private void edit(String before, String after) throws LexParseException, TokenNotMatchException {
+        var offset = this.lexer.getText().indexOf(before);
+        assertTrue(offset >= 0);
+        var change = this.lexer.edit(offset, before.length(), after);
+        this.parser.update(this.lexer.getTokens(), change);
+    }
+
+    private void assertSameAsFull() throws LexParseException, TokenNotMatchException, TreeNodeException {
+        var expected = Parser.of(this.lexer.getTokens()).getAst();
+        var ast = this.parser.getAst();
+        assertEquals(expected.printString(), ast.printString());
+        assertEquals(spans(expected), spans(ast));
+    }
+
+    private static String spans(TreeNode root) {
+        var builder = new StringBuilder();
+        var stack = new ArrayDeque<TreeNode>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            builder.append(node.getNodeK()).append(' ')
+                    .append(node.getTokenFrom()).append(' ')
+                    .append(node.getTokenTo()).append('\n');
+            for (int i = node.getChild().size() - 1; i >= 0; i--) {
+                stack.push(node.getChild().get(i));
+            }
+        }
+        return builder.toString();
+    }
+
+    public void testStatement() throws Exception {
+        edit("a:=i;", "a:=i+1;");
+        assertEquals(NodeKind.StmtK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+
+        edit("then v1:=v1+10", "then v1:=(v1+10)*2");
+        assertEquals(NodeKind.StmtK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+    }
+
+    public void testStatementList() throws Exception {
+        edit("q(v1)\nend.", "q(v1);\n    write(v2)\nend.");
+        assertEquals(NodeKind.StmLK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+
+        edit("a:=i;", "");
+        assertEquals(NodeKind.StmLK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+    }
+
+    public void testProcedure() throws Exception {
+        edit("var integer a;", "var integer a, b;");
+        assertEquals(NodeKind.ProcDecK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+
+        edit("q(integer i)", "q(integer i; var integer j)");
+        assertEquals(NodeKind.ProcDecK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+    }
+
+    public void testFullReparse() throws Exception {
+        edit("v1,v2;", "v1,v2,v3;");
+        assertSame(this.parser.getAst(), this.parser.getReparsed());
+        assertSameAsFull();
+
+        try {
+            edit("write(a)", "write(a");
+            fail();
+        } catch (TokenNotMatchException ignored) {
+        }
+    }
+
+    /**
+     * 失败的修改之后，下一次修改重新完整分析，不拼接到与 token 不符的语法树上
+     */
+    public void testFailedEdit() throws Exception {
+        this.lexer = new IncrementalLexer<>(ParserTest.lexer, "program p var integer a, b; begin a:=1; b:=2 end.");
+        this.parser = new IncrementalParser(this.lexer.getTokens());
+        var ast = this.parser.getAst();
+
+        try {
+            edit("b:=2", "b:=2;");
+            fail();
+        } catch (TokenNotMatchException ignored) {
+        }
+        assertSame(ast, this.parser.getAst());
+        try {
+            edit("a:=1", "a:=5");
+            fail();
+        } catch (TokenNotMatchException ignored) {
+        }
+
+        edit("b:=2;", "b:=2");
+        assertSameAsFull();
+        assertTrue(this.parser.getAst().printString().contains("Const 5"));
+        edit("a:=5", "a:=6");
+        assertEquals(NodeKind.StmtK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+    }
+
+    public void testSequence() throws Exception {
+        edit("a:=i;", "a:=i*2;");
+        edit("read(v1);", "read(v1);\n    read(v2);");
+        edit("v1<10", "v1<v2");
+        edit("write(a)", "write(a);\n    if a<1 then a:=1 else a:=2 fi");
+        edit("end\nbegin", "end\nprocedure\n    r(integer j);\nbegin\n    write(j)\nend\nbegin");
+        assertSameAsFull();
+        edit("write(j)", "r(j-1)");
+        assertEquals(NodeKind.StmtK, this.parser.getReparsed().getNodeK());
+        assertSameAsFull();
+    }
+}
@@ -1,16 +1,22 @@
 package net.kaaass.snlc.parser;
 
 import junit.framework.TestCase;
+import net.kaaass.snlc.ast.Kind;
+import net.kaaass.snlc.ast.TreeNode;
+import net.kaaass.snlc.ast.attr.ArrayAttr;
 import net.kaaass.snlc.lexer.Lexer;
+import net.kaaass.snlc.lexer.TokenBuffer;
 import net.kaaass.snlc.lexer.exception.LexParseException;
 import net.kaaass.snlc.lexer.snl.SnlLexeme;
 import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
 import net.kaaass.snlc.parser.exception.TokenNotMatchException;
 import net.kaaass.snlc.parser.exception.TreeNodeException;
+import net.kaaass.snlc.workload.SnlProgramGenerator;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Objects;
 
 public class ParserTest extends TestCase {
@@ -33,5 +39,143 @@ public class ParserTest extends TestCase {
         assertEquals(astRes, ast.printString());
     }
 
+    public void testTokenBuffer() throws LexParseException, TokenNotMatchException, TreeNodeException, IOException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Objects.requireNonNull(classLoader.getResource("example.snl")).getPath();
+        var astPath = Objects.requireNonNull(classLoader.getResource("ast.txt")).getPath();
+        String code = Files.readString(Path.of(codePath));
+        String astRes = Files.readString(Path.of(astPath));
+
+        var buffer = TokenBuffer.readAll(lexer.process(code), SnlLexeme.class);
+        var ast = Parser.of(buffer).getAst();
+
+        assertEquals(astRes, ast.printString());
+    }
+
+    public void testStream() throws LexParseException, TokenNotMatchException, TreeNodeException, IOException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Objects.requireNonNull(classLoader.getResource("example.snl")).getPath();
+        var astPath = Objects.requireNonNull(classLoader.getResource("ast.txt")).getPath();
+        String code = Files.readString(Path.of(codePath));
+        String astRes = Files.readString(Path.of(astPath));
+
+        var ast = Parser.of(lexer.process(code)).getAst();
+
+        assertEquals(astRes, ast.printString());
+    }
+
+    public void testVarDecList() throws LexParseException, TokenNotMatchException, TreeNodeException {
+        var code = "program p var integer a; char b; integer c; begin a := 1 end.";
+
+        var ast = Parser.of(lexer.process(code)).getAst();
 
+        assertTrue(ast.printString().contains("    VarK\n" +
+                "        DecK IntegerK a\n" +
+                "        DecK CharK b\n" +
+                "        DecK IntegerK c\n"));
+    }
+
+    public void testArrayType() throws LexParseException, TokenNotMatchException, TreeNodeException {
+        var code = "program p type t = array [1..16] of integer; var array [0..3] of integer c; " +
+                "begin c[1] := 1 end.";
+
+        var ast = Parser.of(lexer.process(code)).getAst();
+
+        var attr = (ArrayAttr) ast.getChild().get(1).getChild().get(0).getAttr();
+        assertEquals(1, attr.getLow().intValue());
+        assertEquals(16, attr.getTop().intValue());
+        assertEquals(Kind.IntegerK, attr.getChildType());
+        assertEquals(TableParser.of(lexer.process(code)).getAst().printString(), ast.printString());
+    }
+
+    public void testStreamLexError() throws TokenNotMatchException {
+        try {
+            Parser.of(lexer.process("program p\nvar integer a;\nbegin a := 1 # end.")).getAst();
+            fail();
+        } catch (LexParseException e) {
+            assertEquals(3, e.getLine());
+        }
+    }
+
+    public void testOperatorChain() throws LexParseException, TokenNotMatchException, TreeNodeException {
+        var code = "program p var integer a, b; begin a := a + b * 2 - 3 / b * a + 1 end.";
+
+        var ast = Parser.of(lexer.process(code)).getAst();
+
+        assertTrue(ast.printString().endsWith("            ExpK Op +\n" +
+                "                ExpK a IdV\n" +
+                "                ExpK Op -\n" +
+                "                    ExpK Op *\n" +
+                "                        ExpK b IdV\n" +
+                "                        ExpK Const 2\n" +
+                "                    ExpK Op +\n" +
+                "                        ExpK Op /\n" +
+                "                            ExpK Const 3\n" +
+                "                            ExpK Op *\n" +
+                "                                ExpK b IdV\n" +
+                "                                ExpK a IdV\n" +
+                "                        ExpK Const 1\n"));
+    }
+
+    /**
+     * 长表达式不应栈溢出，结点深度与父结点一致
+     */
+    public void testLongExpression() throws LexParseException, TokenNotMatchException {
+        var terms = 100000;
+        var builder = new StringBuilder("program p var integer a, b; begin a := a");
+        for (int i = 1; i < terms; i++) {
+            builder.append("+-*/".charAt(i % 4)).append(i % 3 == 0 ? "b" : "a");
+        }
+        builder.append(" end.");
+        var code = builder.toString();
+
+        var ast = Parser.of(lexer.process(code).readAllTokens()).getAst();
+        var expected = TableParser.of(lexer.process(code)).getAst();
+
+        var count = assertSameTree(expected, ast);
+        assertTrue(count > 2 * terms);
+    }
+
+    /**
+     * 生成的程序覆盖全部文法，递归下降与表驱动分析结果相同
+     */
+    public void testGeneratedProgram() throws IOException, LexParseException, TokenNotMatchException {
+        var builder = new StringBuilder();
+        new SnlProgramGenerator(5, 64 << 10).generate(builder);
+        var code = builder.toString();
+
+        var ast = Parser.of(lexer.process(code)).getAst();
+
+        assertSameTree(TableParser.of(lexer.process(code)).getAst(), ast);
+    }
+
+    /**
+     * 逐结点比较，并检查两棵树的父结点与深度
+     *
+     * @return 结点数
+     */
+    private static int assertSameTree(TreeNode expected, TreeNode ast) {
+        var stack = new ArrayDeque<TreeNode[]>();
+        stack.push(new TreeNode[]{ast, expected});
+        var count = 0;
+        while (!stack.isEmpty()) {
+            var pair = stack.pop();
+            var node = pair[0];
+            var other = pair[1];
+            count++;
+            assertEquals(other.getNodeK(), node.getNodeK());
+            assertEquals(other.getKind(), node.getKind());
+            assertEquals(other.getName(), node.getName());
+            assertEquals(other.getDept(), node.getDept());
+            assertEquals(other.getChild().size(), node.getChild().size());
+            for (int i = 0; i < node.getChild().size(); i++) {
+                var child = node.getChild().get(i);
+                assertSame(node, child.getParent());
+                assertSame(other, other.getChild().get(i).getParent());
+                assertEquals(node.getDept() + 1, child.getDept().intValue());
+                stack.push(new TreeNode[]{child, other.getChild().get(i)});
+            }
+        }
+        return count;
+    }
 }
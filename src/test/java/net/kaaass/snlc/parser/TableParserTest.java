@@ -0,0 +1,73 @@
+package net.kaaass.snlc.parser;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+import net.kaaass.snlc.parser.exception.TreeNodeException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static net.kaaass.snlc.parser.ParserTest.lexer;
+
+public class TableParserTest extends TestCase {
+
+    public void testAst() throws LexParseException, TokenNotMatchException, TreeNodeException, IOException {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        var codePath = Objects.requireNonNull(classLoader.getResource("example.snl")).getPath();
+        var astPath = Objects.requireNonNull(classLoader.getResource("ast.txt")).getPath();
+        String code = Files.readString(Path.of(codePath));
+        String astRes = Files.readString(Path.of(astPath));
+
+        var ast = TableParser.of(lexer.process(code)).getAst();
+
+        assertEquals(astRes, ast.printString());
+    }
+
+    public void testSameAsParser() throws LexParseException, TokenNotMatchException, TreeNodeException {
+        String code = "program p\n" +
+                "type t1 = integer; t2 = record integer a, b; char c; end;\n" +
+                "var integer v1, v2; t2 r;\n" +
+                "procedure q(integer i, j; var char c);\n" +
+                "begin\n" +
+                "    while i < j * (2 + i) do i := i + 1 / 2 - v1 endwh;\n" +
+                "    return\n" +
+                "end\n" +
+                "procedure s();\n" +
+                "begin write(1) end\n" +
+                "begin\n" +
+                "    read(v1);\n" +
+                "    v2 := v1 * v2 - 3 * 4;\n" +
+                "    if v1 = 10 then q(v1, v2 + 1, v1) else s() fi\n" +
+                "end.";
+
+        var expected = Parser.of(lexer.process(code).readAllTokens()).getAst().printString();
+        var actual = TableParser.of(lexer.process(code)).getAst().printString();
+
+        assertEquals(expected, actual);
+    }
+
+    public void testDeepNesting() throws LexParseException, TokenNotMatchException, TreeNodeException {
+        var depth = 100000;
+        String code = "program p begin write(" + "(".repeat(depth) + "1" + ")".repeat(depth) + ") end.";
+
+        var ast = TableParser.of(lexer.process(code)).getAst();
+
+        assertTrue(ast.printString().endsWith("StmtK Write\n            ExpK Const 1\n"));
+    }
+
+    public void testNotMatch() throws LexParseException {
+        try {
+            TableParser.of(lexer.process("program p begin write(1) end")).getAst();
+            fail();
+        } catch (TokenNotMatchException ignore) {
+        }
+        try {
+            TableParser.of(lexer.process("program p begin write(1) end. end")).getAst();
+            fail();
+        } catch (TokenNotMatchException ignore) {
+        }
+    }
+}
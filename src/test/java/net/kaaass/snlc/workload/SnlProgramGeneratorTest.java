@@ -0,0 +1,91 @@
+package net.kaaass.snlc.workload;
+
+import junit.framework.TestCase;
+import net.kaaass.snlc.lexer.exception.LexParseException;
+import net.kaaass.snlc.lexer.snl.SnlLexeme;
+import net.kaaass.snlc.lexer.snl.SnlLexerFactory;
+import net.kaaass.snlc.parser.Grammar;
+import net.kaaass.snlc.parser.TableParser;
+import net.kaaass.snlc.parser.exception.TokenNotMatchException;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+public class SnlProgramGeneratorTest extends TestCase {
+
+    private static String generate(long seed, long size) throws IOException {
+        var builder = new StringBuilder();
+        var written = new SnlProgramGenerator(seed, size).generate(builder);
+        assertEquals(builder.length(), written);
+        return builder.toString();
+    }
+
+    public void testSize() throws IOException {
+        for (var size : new long[]{1 << 10, 64 << 10, 1 << 20}) {
+            var code = generate(1, size);
+            assertTrue(code.length() >= size);
+            assertTrue(code.length() < size + 4096);
+            assertTrue(code.endsWith("end.\n"));
+        }
+    }
+
+    public void testSeed() throws IOException {
+        assertEquals(generate(7, 8 << 10), generate(7, 8 << 10));
+        assertFalse(generate(7, 8 << 10).equals(generate(8, 8 << 10)));
+    }
+
+    public void testParseSize() {
+        assertEquals(1024, SnlProgramGenerator.parseSize("1KB"));
+        assertEquals(16L << 20, SnlProgramGenerator.parseSize("16mb"));
+        assertEquals(1L << 30, SnlProgramGenerator.parseSize("1GB"));
+        assertEquals(100, SnlProgramGenerator.parseSize("100"));
+    }
+
+    /**
+     * 生成的程序能通过语法分析，并用到文法中的所有终极符
+     */
+    public void testGrammarCoverage() throws IOException, LexParseException, TokenNotMatchException {
+        var code = generate(3, 256 << 10);
+        var lexer = SnlLexerFactory.create();
+
+        var used = EnumSet.noneOf(SnlLexeme.class);
+        var engine = lexer.process(code);
+        for (var token = engine.nextToken(); token != null; token = engine.nextToken()) {
+            used.add(token.getDefinition().getType());
+        }
+        for (var right : Grammar.snl().getRight()) {
+            for (var symbol : right) {
+                if (symbol >= 0) {
+                    assertTrue(SnlLexeme.values()[symbol].toString(), used.contains(SnlLexeme.values()[symbol]));
+                }
+            }
+        }
+        assertTrue(code.contains("{"));
+
+        TableParser.of(lexer.process(code)).getAst();
+    }
+
+    public void testExpression() throws IOException, LexParseException, TokenNotMatchException {
+        var builder = new StringBuilder();
+        var written = new SnlProgramGenerator(5, 0).generateExpression(1000, builder);
+        assertEquals(builder.length(), written);
+        var code = builder.toString();
+
+        var ast = TableParser.of(SnlLexerFactory.create().process(code)).getAst();
+        // 主程序只有一条赋值语句
+        var body = ast.getChild().get(ast.getChild().size() - 1);
+        assertEquals(1, body.getChild().size());
+        assertTrue(code.length() > 1000 * 4);
+    }
+
+    /**
+     * 主程序最后一条语句后没有多余的分号
+     */
+    public void testLastStatement() throws IOException {
+        for (int seed = 0; seed < 512; seed++) {
+            var code = generate(seed, 2 << 10);
+            var body = code.substring(0, code.length() - "end.\n".length()).stripTrailing();
+            assertFalse("seed " + seed, body.endsWith(";"));
+        }
+    }
+}